@@ -0,0 +1,79 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the whole footballJob over the bundled player.csv and games.csv against an embedded
+ * H2 database in MySQL mode. The Spring context is booted once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FootballJobBenchmark {
+    private ConfigurableApplicationContext context;
+    private JobLauncher jobLauncher;
+    private Job footballJob;
+    private JdbcTemplate jdbcTemplate;
+    private long run;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = SpringApplication.run(SbatchFootballApplication.class,
+                "--spring.profiles.active=perf",
+                "--spring.batch.job.enabled=false",
+                "--logging.level.root=WARN");
+        jobLauncher = context.getBean(JobLauncher.class);
+        footballJob = context.getBean("footballJob", Job.class);
+        jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+    }
+
+    @Setup(Level.Invocation)
+    public void truncate() {
+        jdbcTemplate.execute("TRUNCATE TABLE player");
+        jdbcTemplate.execute("TRUNCATE TABLE game");
+        jdbcTemplate.execute("TRUNCATE TABLE player_summary");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public JobExecution footballJob() throws Exception {
+        JobExecution execution = jobLauncher.run(footballJob, new JobParametersBuilder()
+                .addString("playerFile", "/input/player.csv")
+                .addString("gameFile", "/input/games.csv")
+                .addLong("run", ++run)
+                .toJobParameters());
+        if (execution.getStatus() != BatchStatus.COMPLETED) {
+            throw new IllegalStateException("footballJob finished " + execution.getStatus());
+        }
+        return execution;
+    }
+}
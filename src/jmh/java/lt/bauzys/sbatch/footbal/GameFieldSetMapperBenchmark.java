@@ -0,0 +1,52 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+import org.springframework.batch.item.file.transform.FieldSet;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GameFieldSetMapperBenchmark {
+    private static final String LINE = "AbduKa00,1996,mia,10,nwe,0,0,0,0,0,29,104,,16,2";
+
+    private final GameFieldSetMapper mapper = new GameFieldSetMapper();
+    private DelimitedLineTokenizer tokenizer;
+    private FieldSet fieldSet;
+
+    @Setup
+    public void setUp() {
+        tokenizer = new DelimitedLineTokenizer();
+        tokenizer.setNames(GameFieldSetMapper.NAMES);
+        fieldSet = tokenizer.tokenize(LINE);
+    }
+
+    @Benchmark
+    public FieldSet tokenize() {
+        return tokenizer.tokenize(LINE);
+    }
+
+    @Benchmark
+    public Game map() {
+        return mapper.mapFieldSet(fieldSet);
+    }
+
+    @Benchmark
+    public Game tokenizeAndMap() {
+        return mapper.mapFieldSet(tokenizer.tokenize(LINE));
+    }
+}
@@ -0,0 +1,75 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GameItemReaderBenchmark {
+    private final Resource games = new ClassPathResource("input/games.csv");
+
+    @Benchmark
+    public void flatFileItemReader(Blackhole blackhole) throws Exception {
+        drain(new FlatFileItemReaderBuilder<Game>()
+                .name("gameFileItemReader")
+                .resource(games)
+                .delimited()
+                .names(GameFieldSetMapper.NAMES)
+                .fieldSetMapper(new GameFieldSetMapper())
+                .build(), blackhole);
+    }
+
+    @Benchmark
+    public void flatFileItemReaderWithSymbols(Blackhole blackhole) throws Exception {
+        drain(new FlatFileItemReaderBuilder<Game>()
+                .name("gameFileItemReader")
+                .resource(games)
+                .delimited()
+                .names(GameFieldSetMapper.NAMES)
+                .fieldSetMapper(new GameFieldSetMapper(new SymbolTable()))
+                .build(), blackhole);
+    }
+
+    @Benchmark
+    public void mappedGameItemReader(Blackhole blackhole) throws Exception {
+        drain(new MappedGameItemReader(games), blackhole);
+    }
+
+    @Benchmark
+    public void mappedGameItemReaderWithSymbols(Blackhole blackhole) throws Exception {
+        MappedGameItemReader reader = new MappedGameItemReader(games);
+        reader.setSymbolTable(new SymbolTable());
+        drain(reader, blackhole);
+    }
+
+    private static void drain(ItemStreamReader<Game> reader, Blackhole blackhole) throws Exception {
+        reader.open(new ExecutionContext());
+        try {
+            Game game;
+            while ((game = reader.read()) != null) {
+                blackhole.consume(game);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+}
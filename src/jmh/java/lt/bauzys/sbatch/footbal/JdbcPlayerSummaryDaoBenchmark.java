@@ -0,0 +1,73 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes one chunk of summaries into an embedded H2 database in MySQL mode.
+ * The writes upsert, so every invocation writes the same keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JdbcPlayerSummaryDaoBenchmark {
+
+    @Param({"20", "500"})
+    public int chunkSize;
+
+    @Param({"1", "50"})
+    public int rowsPerStatement;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcPlayerSummaryDao dao;
+    private List<PlayerSummary> chunk;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:summary-benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "", true);
+        new ResourceDatabasePopulator(new ClassPathResource("schema-mysql.sql")).execute(dataSource);
+        dao = new JdbcPlayerSummaryDao(dataSource, rowsPerStatement, JdbcPlayerSummaryDao.WriteMode.UPSERT);
+        chunk = new ArrayList<>(chunkSize);
+        for (int i = 0; i < chunkSize; i++) {
+            PlayerSummary summary = new PlayerSummary();
+            summary.setId("Player" + (i / 10));
+            summary.setYear(1990 + i % 10);
+            summary.setRushes(i);
+            summary.setRushYards(i * 4);
+            summary.setTotalTd(i % 3);
+            chunk.add(summary);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public void write() {
+        dao.write(chunk);
+    }
+}
@@ -0,0 +1,44 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PlayerSummaryRowMapperBenchmark {
+    private final PlayerSummaryRowMapper mapper = new PlayerSummaryRowMapper();
+    private SimpleResultSet resultSet;
+
+    @Setup
+    public void setUp() throws SQLException {
+        resultSet = new SimpleResultSet();
+        resultSet.addColumn("player_id", Types.VARCHAR, 30, 0);
+        for (int i = 2; i <= 12; i++) {
+            resultSet.addColumn("c" + i, Types.INTEGER, 11, 0);
+        }
+        resultSet.addRow("AbduKa00", 1996, 0, 0, 0, 0, 0, 307, 1116, 23, 139, 9);
+        resultSet.next();
+    }
+
+    @Benchmark
+    public PlayerSummary mapRow() throws SQLException {
+        return mapper.mapRow(resultSet, 1);
+    }
+}
@@ -0,0 +1,118 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
+
+import java.util.List;
+
+/**
+ * Chunk size that follows the observed write and commit latency. After every chunk the cost per item
+ * is folded into a moving average, and the next chunk is sized to take {@code targetMillis}. A single
+ * chunk can at most halve or double the size, always within {@code [minChunkSize, maxChunkSize]}.
+ * The current size is kept in the step's execution context, so a restarted step begins where it left off.
+ * Keeps state for one step execution, so it has to be step scoped and registered as a listener of its step.
+ */
+public class AdaptiveCompletionPolicy extends SimpleCompletionPolicy
+        implements StepExecutionListener, ChunkListener, ItemWriteListener<Object> {
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveCompletionPolicy.class);
+
+    static final String CHUNK_SIZE = "adaptive.chunk.size";
+    private static final double SMOOTHING = 0.3;
+
+    private final int minChunkSize;
+    private final int maxChunkSize;
+    private final long targetNanos;
+
+    private int chunkSize;
+    private long writeStart;
+    private int writeSize;
+    private double nanosPerItem;
+
+    public AdaptiveCompletionPolicy(int initialChunkSize, int minChunkSize, int maxChunkSize, long targetMillis) {
+        if (minChunkSize < 1 || maxChunkSize < minChunkSize) {
+            throw new IllegalArgumentException("Invalid chunk size bounds [" + minChunkSize + ", "
+                    + maxChunkSize + "]");
+        }
+        this.minChunkSize = minChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        this.targetNanos = targetMillis * 1_000_000;
+        setChunkSize(clamp(initialChunkSize));
+    }
+
+    @Override
+    public void setChunkSize(int chunkSize) {
+        super.setChunkSize(chunkSize);
+        this.chunkSize = chunkSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        if (stepExecution.getExecutionContext().containsKey(CHUNK_SIZE)) {
+            setChunkSize(clamp(stepExecution.getExecutionContext().getInt(CHUNK_SIZE)));
+            log.debug("{} resumes with chunk size {}", stepExecution.getStepName(), getChunkSize());
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        stepExecution.getExecutionContext().putInt(CHUNK_SIZE, getChunkSize());
+        return null;
+    }
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        writeStart = 0;
+        // saved together with this chunk's commit
+        context.getStepContext().getStepExecution().getExecutionContext().putInt(CHUNK_SIZE, getChunkSize());
+    }
+
+    @Override
+    public void beforeWrite(List<?> items) {
+        writeStart = System.nanoTime();
+        writeSize = items.size();
+    }
+
+    @Override
+    public void afterWrite(List<?> items) {
+    }
+
+    @Override
+    public void onWriteError(Exception exception, List<?> items) {
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        if (writeStart == 0 || writeSize == 0) {
+            return;
+        }
+        double itemNanos = (double) (System.nanoTime() - writeStart) / writeSize;
+        nanosPerItem = nanosPerItem == 0 ? itemNanos : SMOOTHING * itemNanos + (1 - SMOOTHING) * nanosPerItem;
+        int current = getChunkSize();
+        long wanted = Math.round(targetNanos / Math.max(nanosPerItem, 1));
+        int next = clamp(Math.max(current / 2, Math.min(2L * current, wanted)));
+        if (next != current) {
+            log.debug("Chunk size {} -> {} at {} us per item", current, next, Math.round(nanosPerItem / 1000));
+            setChunkSize(next);
+        }
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        writeStart = 0;
+    }
+
+    private int clamp(long chunkSize) {
+        return (int) Math.max(minChunkSize, Math.min(maxChunkSize, chunkSize));
+    }
+}
@@ -1,66 +1,369 @@
 package lt.bauzys.sbatch.footbal;
 
+import org.springframework.batch.core.ChunkListener;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
 import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.job.builder.FlowBuilder;
+import org.springframework.batch.core.job.builder.FlowJobBuilder;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.job.builder.SimpleJobBuilder;
+import org.springframework.batch.core.job.flow.Flow;
+import org.springframework.batch.core.job.flow.support.SimpleFlow;
+import org.springframework.batch.core.launch.JobLauncher;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.core.step.builder.PartitionStepBuilder;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
+import org.springframework.batch.core.step.builder.TaskletStepBuilder;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.database.JdbcBatchItemWriter;
 import org.springframework.batch.item.database.JdbcCursorItemReader;
+import org.springframework.batch.item.database.Order;
 import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
 import org.springframework.batch.item.database.builder.JdbcCursorItemReaderBuilder;
+import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
 import org.springframework.batch.item.file.FlatFileItemReader;
 import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
+import org.springframework.batch.item.support.ClassifierCompositeItemWriter;
 import org.springframework.batch.item.support.ListItemWriter;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Configuration
 @EnableBatchProcessing
 public class BatchConfiguration {
+    private static final String PLAYER_SUMMARY_SELECT = "GAME.player_id, GAME.year, SUM(COMPLETES)," +
+            "SUM(ATTEMPTS), SUM(PASSING_YARDS), SUM(PASSING_TD)," +
+            "SUM(INTERCEPTIONS), SUM(RUSHES), SUM(RUSH_YARDS)," +
+            "SUM(RECEPTIONS), SUM(RECEPTION_YARDS), SUM(TOTAL_TD)";
+    private static final String JOB_INSTANCE_ID = "jobInstanceId";
+    private static final String[] GAME_COLUMNS = {"player_id", "year", "team", "week", "opponent", "completes",
+            "attempts", "passing_yards", "passing_td", "interceptions", "rushes", "rush_yards", "receptions",
+            "reception_yards", "total_td", "job_instance_id"};
+
     private final JobBuilderFactory jobBuilderFactory;
     private final StepBuilderFactory stepBuilderFactory;
     private final DataSource dataSource;
+    private final StepMetricsListener stepMetricsListener;
+    private final ResourcePatternResolver resourcePatternResolver;
+    private final PlatformTransactionManager transactionManager;
+    private final Environment environment;
 
     @Value("${commit.interval:10}")
     private int commitInterval;
     @Value("${batch.verify.cursor.position:true}")
     private boolean verifyCursorPosition;
+    @Value("${partition.grid.size:1}")
+    private int partitionGridSize;
+    @Value("${partition.threads:0}")
+    private int partitionThreads;
+    @Value("${load.parallel:true}")
+    private boolean parallelLoads;
+    @Value("${load.threads:2}")
+    private int loadThreads;
+    @Value("${reader.mapped:false}")
+    private boolean mappedReader;
+    @Value("${reader.prefetch.size:0}")
+    private int readerPrefetchSize;
+    @Value("${reader.symbols:true}")
+    private boolean readerSymbols;
+    @Value("${game.cache.enabled:false}")
+    private boolean gameCache;
+    @Value("${game.cache.dir:game-cache}")
+    private String gameCacheDir;
+    @Value("${summary.aggregate.enabled:false}")
+    private boolean aggregateSummaries;
+    @Value("${summary.writer.rows.per.statement:1}")
+    private int summaryRowsPerStatement;
+    @Value("${load.mode:insert}")
+    private String loadMode;
+    @Value("${game.orphans:keep}")
+    private String orphanGames;
+    @Value("${summary.incremental.enabled:false}")
+    private boolean incrementalSummaries;
+    @Value("${summary.partition.remote:false}")
+    private boolean remoteSummaries;
+    @Value("${summary.partition.grid.size:8}")
+    private int summaryGridSize;
+    @Value("${summary.partition.poll.ms:1000}")
+    private long summaryPollMillis;
+    @Value("${summary.partition.heartbeat.timeout.ms:300000}")
+    private long summaryHeartbeatTimeoutMillis;
+    @Value("${summary.partition.timeout.ms:0}")
+    private long summaryTimeoutMillis;
+    @Value("${summary.reader.fetch.size:" + Integer.MIN_VALUE + "}")
+    private int summaryFetchSize;
+    @Value("${summary.reader.page.size:1000}")
+    private int summaryPageSize;
+    @Value("${summary.rollups.enabled:false}")
+    private boolean rollups;
+    @Value("${leaderboard.enabled:false}")
+    private boolean leaderboard;
+    @Value("${leaderboard.size:10}")
+    private int leaderboardSize;
+    @Value("${job.repository.mode:" + JobRepositoryConfiguration.JDBC + "}")
+    private String jobRepositoryMode;
+    @Value("${skip.limit:0}")
+    private int skipLimit;
+    @Value("${commit.interval.adaptive:false}")
+    private boolean adaptiveCommitInterval;
+    @Value("${commit.interval.min:10}")
+    private int minCommitInterval;
+    @Value("${commit.interval.max:10000}")
+    private int maxCommitInterval;
+    @Value("${commit.interval.target.ms:500}")
+    private long commitTargetMillis;
 
     public BatchConfiguration(JobBuilderFactory jobBuilderFactory,
                               StepBuilderFactory stepBuilderFactory,
-                              DataSource dataSource) {
+                              DataSource dataSource,
+                              StepMetricsListener stepMetricsListener,
+                              ResourceLoader resourceLoader,
+                              PlatformTransactionManager transactionManager,
+                              Environment environment) {
         this.jobBuilderFactory = jobBuilderFactory;
         this.stepBuilderFactory = stepBuilderFactory;
         this.dataSource = dataSource;
+        this.stepMetricsListener = stepMetricsListener;
+        this.resourcePatternResolver = ResourcePatternUtils.getResourcePatternResolver(resourceLoader);
+        this.transactionManager = transactionManager;
+        this.environment = environment;
+    }
+
+    /**
+     * Chunk step with the metrics listener, sized by {@code commit.interval} or by the adaptive policy, and with
+     * the reject log when the step has a skip limit.
+     */
+    private <I, O> SimpleStepBuilder<I, O> chunkStep(String name) {
+        SimpleStepBuilder<I, O> builder;
+        if (adaptiveCommitInterval) {
+            AdaptiveCompletionPolicy policy = adaptiveCompletionPolicy();
+            builder = stepBuilderFactory.get(name).chunk(policy);
+            builder.listener((StepExecutionListener) policy);
+            builder.listener((ChunkListener) policy);
+        } else {
+            builder = stepBuilderFactory.get(name).chunk(commitInterval);
+        }
+        builder.listener((StepExecutionListener) stepMetricsListener);
+        builder.listener((ChunkListener) stepMetricsListener);
+        if (skipLimit(name) > 0) {
+            builder.listener(rejectLog());
+        }
+        return builder;
+    }
+
+    /**
+     * Items a step may skip, {@code skip.limit.<step name>} or else {@code skip.limit}. {@code 0} fails the step
+     * on the first bad item.
+     */
+    private int skipLimit(String stepName) {
+        return environment.getProperty("skip.limit." + stepName, Integer.class, skipLimit);
+    }
+
+    @Bean
+    public RejectLog rejectLog() {
+        return new RejectLog(dataSource, this::skipLimit);
+    }
+
+    /**
+     * Isolates and rejects the items {@code writer} refuses when the step has a skip limit.
+     */
+    private <T> ItemWriter<T> skipping(String stepName, ItemWriter<T> writer) {
+        return skipLimit(stepName) > 0 ? new BisectingItemWriter<>(writer, rejectLog(), transactionManager) : writer;
+    }
+
+    /**
+     * Skips unparseable lines when the step building the reader has a skip limit.
+     */
+    private <T> ItemStreamReader<T> skipping(ItemStreamReader<T> reader) {
+        RejectLog.StepRejects rejects = rejectLog().current();
+        return rejects == null ? reader : new RejectingItemReader<>(reader, rejects);
+    }
+
+    private String gameLoadStepName() {
+        return partitionGridSize <= 1 ? "gameLoad" : "gameLoadWorker";
+    }
+
+    @Bean
+    @StepScope
+    public AdaptiveCompletionPolicy adaptiveCompletionPolicy() {
+        return new AdaptiveCompletionPolicy(commitInterval, minCommitInterval, maxCommitInterval, commitTargetMillis);
     }
 
     @Bean
     public Job footballJob(@Qualifier("playerLoadStep") Step playerLoadStep,
+                           @Qualifier("gameCacheStep") Step gameCacheStep,
                            Step gameLoadStep,
                            @Qualifier("summarizationStep") Step summarizationStep,
-                           JobCompletionNotificationListener listener) {
-        return jobBuilderFactory.get("footballJob")
+                           @Qualifier("summaryFlushStep") Step summaryFlushStep,
+                           @Qualifier("rollupStep") Step rollupStep,
+                           @Qualifier("leaderboardStep") Step leaderboardStep,
+                           @Qualifier("gameReplaceStep") Step gameReplaceStep,
+                           @Qualifier("touchedKeysCleanupStep") Step touchedKeysCleanupStep,
+                           JobCompletionNotificationListener listener,
+                           TaskExecutor loadTaskExecutor) {
+        if (aggregateSummaries && remoteSummaries) {
+            throw new IllegalStateException("summary.partition.remote needs summarizationStep,"
+                    + " which summary.aggregate.enabled replaces");
+        }
+        if (skipOrphanGames() && parallelLoads) {
+            throw new IllegalStateException("game.orphans=skip checks games against the loaded players,"
+                    + " set load.parallel=false so the players are loaded first");
+        }
+        if (aggregateSummaries && skipLimit(gameLoadStepName()) > 0) {
+            throw new IllegalStateException("summary.aggregate.enabled adds games up before they are written,"
+                    + " a skip limit on " + gameLoadStepName() + " would count rejected games");
+        }
+        if (rollups && (aggregateSummaries || remoteSummaries || incrementalSummaries)) {
+            throw new IllegalStateException("summary.rollups.enabled replaces summarizationStep with a full pass"
+                    + " over the games, it does not combine with summary.aggregate.enabled,"
+                    + " summary.partition.remote or summary.incremental.enabled");
+        }
+        Step summaryStep = aggregateSummaries ? summaryFlushStep : rollups ? rollupStep : summarizationStep;
+        if (!parallelLoads) {
+            SimpleJobBuilder builder = footballJobBuilder(listener).start(playerLoadStep);
+            if (gameCache) {
+                builder.next(gameCacheStep);
+            }
+            builder.next(gameReplaceStep).next(gameLoadStep).next(summaryStep);
+            if (incrementalSummaries) {
+                builder.next(touchedKeysCleanupStep);
+            }
+            if (leaderboard) {
+                builder.next(leaderboardStep);
+            }
+            return builder.build();
+        }
+        Flow gameLoadFlow = gameCache
+                ? new FlowBuilder<SimpleFlow>("gameLoadFlow").start(gameCacheStep).next(gameReplaceStep)
+                        .next(gameLoadStep).build()
+                : new FlowBuilder<SimpleFlow>("gameLoadFlow").start(gameReplaceStep).next(gameLoadStep).build();
+        FlowBuilder<FlowJobBuilder> builder = footballJobBuilder(listener)
+                .start(loadFlow(playerLoadStep, gameLoadFlow, loadTaskExecutor))
+                .next(summaryStep);
+        if (incrementalSummaries) {
+            builder.next(touchedKeysCleanupStep);
+        }
+        if (leaderboard) {
+            builder.next(leaderboardStep);
+        }
+        return builder.end().build();
+    }
+
+    /**
+     * Only the {@code jdbc} job repository records every chunk, in the other modes a restart could not continue
+     * where the failed run stopped, so it is refused.
+     */
+    private JobBuilder footballJobBuilder(JobCompletionNotificationListener listener) {
+        JobBuilder builder = jobBuilderFactory.get("footballJob")
                 .incrementer(new RunIdIncrementer())
-                .listener(listener)
-                .start(playerLoadStep)
-                .next(gameLoadStep)
-                .next(summarizationStep)
+                .listener(symbolTables())
+                .listener(listener);
+        if (!JobRepositoryConfiguration.JDBC.equals(jobRepositoryMode)) {
+            builder.preventRestart();
+        }
+        return builder;
+    }
+
+    /**
+     * Player and game loads touch different files and tables, so they run side by side and join before
+     * summarization. A failed branch fails the job once the other branch finished, and a restart only
+     * re-runs the steps that did not complete.
+     */
+    private Flow loadFlow(Step playerLoadStep, Flow gameLoadFlow, TaskExecutor loadTaskExecutor) {
+        Flow playerLoadFlow = new FlowBuilder<SimpleFlow>("playerLoadFlow").start(playerLoadStep).build();
+        return new FlowBuilder<SimpleFlow>("loadFlow")
+                .split(loadTaskExecutor)
+                .add(playerLoadFlow, gameLoadFlow)
                 .build();
     }
 
+    /**
+     * Runs the branches of the load split, one thread per branch by default, {@code load.threads=1} runs them
+     * one after the other.
+     */
+    @Bean
+    public TaskExecutor loadTaskExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("load-");
+        executor.setConcurrencyLimit(Math.max(loadThreads, 1));
+        return executor;
+    }
+
     @Bean
     @StepScope
-    public FlatFileItemReader<Player> playerItemReader(
-            @Value("#{jobParameters['playerFile']}") Resource resource) {
+    public ItemStreamReader<Player> playerItemReader(
+            @Value("#{jobParameters['playerFile']}") String location) throws IOException {
+        List<Resource> files = MultiFilePartitioner.resolve(resourcePatternResolver, location);
+        SymbolTable symbols = readerSymbols ? symbolTables().current() : null;
+        ItemStreamReader<Player> reader = MultiFilePartitioner.isFileSet(resourcePatternResolver, location)
+                ? new MultiFileItemReader<>("playerMultiFileReader", files, file -> playerFileReader(file, symbols))
+                : playerFileReader(files.get(0), symbols);
+        return prefetched("playerPrefetchingReader", skipping(reader));
+    }
+
+    private ItemStreamReader<Player> playerFileReader(Resource file, SymbolTable symbols) {
+        Resource input = compressed(file);
+        if (mappedReader && input.isFile()) {
+            MappedPlayerItemReader mapped = new MappedPlayerItemReader(input);
+            mapped.setSymbolTable(symbols);
+            return mapped;
+        }
+        return playerFlatFileItemReader(input, symbols);
+    }
+
+    private static Resource compressed(Resource file) {
+        try {
+            return CompressedResource.detect(file);
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to open " + file.getDescription(), e);
+        }
+    }
+
+    /**
+     * Canonical player ids and team names shared by the player and game readers of one job execution.
+     */
+    @Bean
+    public SymbolTables symbolTables() {
+        return new SymbolTables();
+    }
+
+    private FlatFileItemReader<Player> playerFlatFileItemReader(Resource resource, SymbolTable symbols) {
         return new FlatFileItemReaderBuilder<Player>()
                 .name("playerItemReader")
                 .resource(resource)
@@ -69,7 +372,8 @@ public class BatchConfiguration {
                 .names(new String[]{"ID", "lastName", "firstName", "position", "birthYear", "debutYear"})
                 .fieldSetMapper(fieldSet -> {
                     Player p = new Player();
-                    p.setId(fieldSet.readString("ID"));
+                    String id = fieldSet.readString("ID");
+                    p.setId(symbols == null ? id : symbols.intern(id));
                     p.setLastName(fieldSet.readString("lastName"));
                     p.setFirstName(fieldSet.readString("firstName"));
                     p.setPosition(fieldSet.readString("position"));
@@ -81,25 +385,129 @@ public class BatchConfiguration {
     }
 
     @Bean
-    public JdbcCursorItemReader<PlayerSummary> playerSummaryJdbcReader(
+    @StepScope
+    public ItemStreamReader<PlayerSummary> playerSummaryJdbcReader(
             DataSource ds,
-            PlayerSummaryRowMapper mapper) {
+            PlayerSummaryRowMapper mapper,
+            @Value("#{stepExecution.jobExecution.jobInstance.instanceId}") Long jobInstanceId) {
+        return playerSummaryReader("playerSummaryJdbcReader", ds, mapper, touchedBy(jobInstanceId));
+    }
 
+    /**
+     * With {@code summary.incremental.enabled} summarization reads only the keys the job instance's game load
+     * touched.
+     */
+    private Map<String, Object> touchedBy(Long jobInstanceId) {
+        Map<String, Object> bounds = new HashMap<>();
+        if (incrementalSummaries) {
+            bounds.put(JOB_INSTANCE_ID, jobInstanceId);
+        }
+        return bounds;
+    }
+
+    /**
+     * Summarization reader bounded to the player_id range of one {@link PlayerRangePartitioner} partition.
+     */
+    @Bean
+    @StepScope
+    public ItemStreamReader<PlayerSummary> playerSummaryPartitionReader(
+            DataSource ds,
+            PlayerSummaryRowMapper mapper,
+            @Value("#{stepExecutionContext['minPlayerId']}") String minPlayerId,
+            @Value("#{stepExecutionContext['maxPlayerId']}") String maxPlayerId,
+            @Value("#{stepExecution.jobExecution.jobInstance.instanceId}") Long jobInstanceId) {
+        Map<String, Object> bounds = touchedBy(jobInstanceId);
+        if (minPlayerId != null) {
+            bounds.put(PlayerRangePartitioner.MIN_PLAYER_ID, minPlayerId);
+        }
+        if (maxPlayerId != null) {
+            bounds.put(PlayerRangePartitioner.MAX_PLAYER_ID, maxPlayerId);
+        }
+        return playerSummaryReader("playerSummaryPartitionReader", ds, mapper, bounds);
+    }
+
+    /**
+     * Pages through the summaries by (player_id, year) when {@code summary.reader.page.size} is set, saving the
+     * last key of every committed page so a restart seeks straight to it. A size of {@code 0} streams them
+     * through one cursor instead.
+     */
+    private ItemStreamReader<PlayerSummary> playerSummaryReader(String name, DataSource ds,
+                                                                PlayerSummaryRowMapper mapper,
+                                                                Map<String, Object> bounds) {
+        String where = playerSummaryWhere(bounds);
+        if (summaryPageSize > 0) {
+            KeysetPagingQueryProvider queryProvider = new KeysetPagingQueryProvider();
+            queryProvider.setSelectClause(PLAYER_SUMMARY_SELECT);
+            queryProvider.setFromClause("GAME");
+            queryProvider.setWhereClause(where);
+            queryProvider.setGroupClause("GAME.player_id, GAME.year");
+            Map<String, Order> sortKeys = new LinkedHashMap<>();
+            sortKeys.put("player_id", Order.ASCENDING);
+            sortKeys.put("year", Order.ASCENDING);
+            queryProvider.setSortKeys(sortKeys);
+            return new JdbcPagingItemReaderBuilder<PlayerSummary>()
+                    .dataSource(ds)
+                    .name(name)
+                    .rowMapper(mapper)
+                    .queryProvider(queryProvider)
+                    .parameterValues(bounds)
+                    .pageSize(summaryPageSize)
+                    .build();
+        }
+        String sql = "SELECT " + PLAYER_SUMMARY_SELECT + " from GAME" + (where == null ? "" : " where " + where) +
+                " group by GAME.player_id, GAME.year order by GAME.player_id, GAME.year";
         return new JdbcCursorItemReaderBuilder<PlayerSummary>()
                 .dataSource(ds)
-                .name("playerSummaryJdbcReader")
-//                .saveState(true)
+                .name(name)
                 .rowMapper(mapper)
                 .verifyCursorPosition(this.verifyCursorPosition)
-                .sql("SELECT GAME.player_id, GAME.year, SUM(COMPLETES)," +
-                        "SUM(ATTEMPTS), SUM(PASSING_YARDS), SUM(PASSING_TD)," +
-                        "SUM(INTERCEPTIONS), SUM(RUSHES), SUM(RUSH_YARDS)," +
-                        "SUM(RECEPTIONS), SUM(RECEPTION_YARDS), SUM(TOTAL_TD)" +
-                        "from GAME, PLAYER where PLAYER.player_id =" +
-                        "GAME.player_id group by GAME.player_id, GAME.year")
+                .fetchSize(summaryFetchSize)
+                .sql(NamedParameterUtils.parseSqlStatementIntoString(sql))
+                .queryArguments(NamedParameterUtils.buildValueArray(sql, bounds))
                 .build();
     }
 
+    /**
+     * Games of unknown players are left out by joining the player table, unless {@link PlayerKeyFilter} kept them
+     * out of the game table already.
+     */
+    private String playerSummaryWhere(Map<String, Object> bounds) {
+        List<String> conditions = new ArrayList<>();
+        if (!skipOrphanGames()) {
+            conditions.add("exists (select 1 from PLAYER where PLAYER.player_id = GAME.player_id)");
+        }
+        if (bounds.containsKey(PlayerRangePartitioner.MIN_PLAYER_ID)) {
+            conditions.add("GAME.player_id >= :" + PlayerRangePartitioner.MIN_PLAYER_ID);
+        }
+        if (bounds.containsKey(PlayerRangePartitioner.MAX_PLAYER_ID)) {
+            conditions.add("GAME.player_id < :" + PlayerRangePartitioner.MAX_PLAYER_ID);
+        }
+        if (bounds.containsKey(JOB_INSTANCE_ID)) {
+            conditions.add("exists (select 1 from player_summary_touched touched" +
+                    " where touched.job_instance_id = :" + JOB_INSTANCE_ID +
+                    " and touched.player_id = GAME.player_id and touched.year_no = GAME.year)");
+        }
+        return conditions.isEmpty() ? null : String.join(" and ", conditions);
+    }
+
+    private boolean skipOrphanGames() {
+        return "skip".equals(orphanGames);
+    }
+
+    @Bean
+    public PlayerKeys playerKeys() {
+        return new PlayerKeys(dataSource);
+    }
+
+    /**
+     * Filters each game load step, or partition, against the ids {@link PlayerKeys} loaded for the job execution.
+     */
+    @Bean
+    @StepScope
+    public PlayerKeyFilter playerKeyFilter() {
+        return new PlayerKeyFilter(playerKeys().current());
+    }
+
     @Bean
     public PlayerSummaryRowMapper playerSummaryRowMapper() {
         return new PlayerSummaryRowMapper();
@@ -107,103 +515,451 @@ public class BatchConfiguration {
 
     @Bean
     @StepScope
-    public FlatFileItemReader<Game> gameFlatFileItemReader(
-            @Value("#{jobParameters['gameFile']}") Resource resource) {
+    public ItemStreamReader<Game> gameItemReader(
+            @Value("#{jobParameters['gameFile']}") String location,
+            @Value("#{jobExecutionContext['gameCacheFile']}") String cacheFile,
+            @Value("#{stepExecutionContext['inputFiles']}") String inputFiles,
+            @Value("#{stepExecutionContext['startOffset']}") Long startOffset,
+            @Value("#{stepExecutionContext['endOffset']}") Long endOffset,
+            @Value("#{stepExecutionContext['startRow']}") Long startRow,
+            @Value("#{stepExecutionContext['endRow']}") Long endRow) throws IOException {
+        List<Resource> files = inputFiles != null
+                ? MultiFilePartitioner.files(inputFiles)
+                : MultiFilePartitioner.resolve(resourcePatternResolver, location);
+        SymbolTable symbols = readerSymbols ? symbolTables().current() : null;
+        if (inputFiles != null || MultiFilePartitioner.isFileSet(resourcePatternResolver, location)) {
+            return prefetched("gamePrefetchingReader", skipping(new MultiFileItemReader<>("gameMultiFileReader",
+                    files, file -> gameFileReader(compressed(file), null, null, symbols))));
+        }
+        Resource input = compressed(files.get(0));
+        Resource columnar = columnarGameFile(input, cacheFile);
+        ItemStreamReader<Game> reader;
+        if (columnar != null) {
+            ColumnarGameItemReader columnarReader = startRow == null
+                    ? new ColumnarGameItemReader(columnar)
+                    : new ColumnarGameItemReader(columnar, startRow, endRow);
+            columnarReader.setSymbolTable(symbols);
+            reader = columnarReader;
+        } else {
+            reader = gameFileReader(input, startOffset, endOffset, symbols);
+        }
+        return prefetched("gamePrefetchingReader", skipping(reader));
+    }
+
+    private ItemStreamReader<Game> gameFileReader(Resource input, Long startOffset, Long endOffset,
+                                                  SymbolTable symbols) {
+        if (mappedReader && input.isFile()) {
+            MappedGameItemReader mapped = startOffset == null
+                    ? new MappedGameItemReader(input)
+                    : new MappedGameItemReader(input, startOffset, endOffset);
+            mapped.setSymbolTable(symbols);
+            return mapped;
+        }
+        return gameFlatFileItemReader(input, startOffset, endOffset, symbols);
+    }
+
+    /**
+     * The {@link ColumnarGameFile} to read games from: the copy made by {@code gameCacheStep}, or the game file
+     * itself when it already is one. {@code null} means the game file is parsed as CSV.
+     */
+    private static Resource columnarGameFile(Resource gameFile, String cacheFile) throws IOException {
+        if (cacheFile != null) {
+            return new FileSystemResource(cacheFile);
+        }
+        return gameFile.isFile() && ColumnarGameFile.isColumnar(gameFile.getFile().toPath()) ? gameFile : null;
+    }
+
+    /**
+     * Moves reading and mapping to a background thread when {@code reader.prefetch.size} is set.
+     */
+    private <T> ItemStreamReader<T> prefetched(String name, ItemStreamReader<T> reader) {
+        return readerPrefetchSize > 0 ? new PrefetchingItemReader<>(name, reader, readerPrefetchSize) : reader;
+    }
+
+    private FlatFileItemReader<Game> gameFlatFileItemReader(Resource resource, Long startOffset, Long endOffset,
+                                                            SymbolTable symbols) {
         return new FlatFileItemReaderBuilder<Game>()
                 .name("gameFileItemReader")
-                .resource(resource)
+                .resource(startOffset == null ? resource : new ByteRangeResource(resource, startOffset, endOffset))
                 .linesToSkip(0)
                 .delimited()
-                .names(new String[]{"ID", "year", "team", "week", "opponent", "completes",
-                        "attempts", "passingYards", "passingTd", "interceptions",
-                        "rushes", "rushYards", "receptions", "receptionYards", "totalTd"})
-                .fieldSetMapper(fieldSet -> {
-                    Game g = new Game();
-                    g.setId(fieldSet.readString("ID"));
-                    g.setYear(fieldSet.readInt("year"));
-                    g.setTeam(fieldSet.readString("team"));
-                    g.setWeek(fieldSet.readInt("week"));
-                    g.setOpponent(fieldSet.readString("opponent"));
-                    g.setCompletes(fieldSet.readInt("completes"));
-                    g.setAttempts(fieldSet.readInt("attempts"));
-                    g.setPassingYards(fieldSet.readInt("passingYards"));
-                    g.setPassingTd(fieldSet.readInt("passingTd"));
-                    g.setInterceptions(fieldSet.readInt("interceptions"));
-                    g.setRushes(fieldSet.readInt("rushes"));
-                    g.setRushYards(fieldSet.readInt("rushYards"));
-                    g.setReceptions(fieldSet.readInt("receptions", 0));
-                    g.setReceptionYards(fieldSet.readInt("receptionYards"));
-                    g.setTotalTd(fieldSet.readInt("totalTd"));
-                    return g;
-                })
+                .names(GameFieldSetMapper.NAMES)
+                .fieldSetMapper(new GameFieldSetMapper(symbols))
                 .build();
     }
 
+    /**
+     * Converts the game file into a {@link ColumnarGameFile} in {@code game.cache.dir}, unless an up to date
+     * copy is there already.
+     */
+    @Bean
+    @StepScope
+    public GameCacheTasklet gameCacheTasklet(@Value("#{jobParameters['gameFile']}") String location)
+            throws IOException {
+        if (MultiFilePartitioner.isFileSet(resourcePatternResolver, location)) {
+            throw new IllegalStateException("game.cache.enabled converts a single game file, " + location
+                    + " is a directory or pattern");
+        }
+        Resource resource = resourcePatternResolver.getResource(location);
+        Resource input = CompressedResource.detect(resource);
+        return new GameCacheTasklet(resource,
+                skipping(mappedReader && input.isFile()
+                        ? new MappedGameItemReader(input)
+                        : gameFlatFileItemReader(input, null, null, null)),
+                Paths.get(gameCacheDir));
+    }
+
+    /**
+     * Lines the conversion cannot parse are rejected against the limit of {@code gameCacheStep}, the copy
+     * leaves them out.
+     */
     @Bean
-    public Step gameLoadStep(FlatFileItemReader<Game> gameItemReader,
-                             JdbcBatchItemWriter<Game> gameWriter) {
-        return stepBuilderFactory.get("gameLoad")
-                .<Game, Game>chunk(commitInterval)
+    public Step gameCacheStep(GameCacheTasklet gameCacheTasklet) {
+        TaskletStepBuilder builder = stepBuilderFactory.get("gameCacheStep").tasklet(gameCacheTasklet);
+        builder.listener((StepExecutionListener) stepMetricsListener);
+        if (skipLimit("gameCacheStep") > 0) {
+            builder.listener(rejectLog());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Groups of files when the game file is a directory or pattern, otherwise byte ranges of a CSV game file
+     * or whole-block row ranges of a columnar one.
+     */
+    @Bean
+    @StepScope
+    public Partitioner gameFilePartitioner(
+            @Value("#{jobParameters['gameFile']}") String location,
+            @Value("#{jobExecutionContext['gameCacheFile']}") String cacheFile) throws IOException {
+        List<Resource> files = MultiFilePartitioner.resolve(resourcePatternResolver, location);
+        if (MultiFilePartitioner.isFileSet(resourcePatternResolver, location)) {
+            return new MultiFilePartitioner(files);
+        }
+        Resource input = CompressedResource.detect(files.get(0));
+        Resource columnar = columnarGameFile(input, cacheFile);
+        if (columnar == null) {
+            return new LineAlignedFilePartitioner(input);
+        }
+        return gridSize -> {
+            try (FileChannel channel = FileChannel.open(columnar.getFile().toPath(), StandardOpenOption.READ)) {
+                return ColumnarGameFile.open(channel).partition(gridSize);
+            } catch (IOException e) {
+                throw new ItemStreamException("Failed to partition " + columnar.getDescription(), e);
+            }
+        };
+    }
+
+    @Bean
+    public TaskExecutor partitionTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        int threads = partitionThreads > 0 ? partitionThreads : Math.max(partitionGridSize, 1);
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("partition-");
+        executor.setDaemon(true);
+        return executor;
+    }
+
+    @Bean
+    public Step gameLoadStep(@Qualifier("gameLoadWorkerStep") Step gameLoadWorkerStep,
+                             Partitioner gameFilePartitioner,
+                             TaskExecutor partitionTaskExecutor) {
+        if (partitionGridSize <= 1) {
+            return gameLoadWorkerStep;
+        }
+        PartitionStepBuilder builder = stepBuilderFactory.get("gameLoad")
+                .partitioner("gameLoadWorker", gameFilePartitioner)
+                .step(gameLoadWorkerStep)
+                .gridSize(partitionGridSize)
+                .taskExecutor(partitionTaskExecutor);
+        if (skipOrphanGames()) {
+            builder.listener(playerKeys());
+        }
+        return builder.build();
+    }
+
+    @Bean
+    public Step gameLoadWorkerStep(ItemStreamReader<Game> gameItemReader,
+                                   ItemWriter<Game> gameWriter,
+                                   TouchedKeysGameWriter touchedKeysGameWriter,
+                                   PlayerSummaryAggregatingWriter playerSummaryAggregatingWriter) {
+        SimpleStepBuilder<Game, Game> builder = this.<Game, Game>chunkStep(gameLoadStepName())
                 .reader(gameItemReader)
-                .writer(gameWriter)
+                .processor(skipOrphanGames() ? playerKeyFilter() : null)
+                .writer(aggregateSummaries ? playerSummaryAggregatingWriter
+                        : skipping(gameLoadStepName(), incrementalSummaries ? touchedKeysGameWriter : gameWriter));
+        if (skipOrphanGames() && partitionGridSize <= 1) {
+            builder.listener((StepExecutionListener) playerKeys());
+        }
+        return builder.build();
+    }
+
+    @Bean
+    @StepScope
+    public TouchedKeysGameWriter touchedKeysGameWriter(
+            ItemWriter<Game> gameWriter,
+            @Value("#{stepExecution.jobExecution.jobInstance.instanceId}") Long jobInstanceId) {
+        return new TouchedKeysGameWriter(gameWriter, dataSource, jobInstanceId);
+    }
+
+    @Bean
+    @StepScope
+    public PlayerSummaryAggregatingWriter playerSummaryAggregatingWriter(
+            ItemWriter<Game> gameWriter,
+            @Value("#{stepExecution.jobExecution.jobInstance.instanceId}") Long jobInstanceId) {
+        return new PlayerSummaryAggregatingWriter(gameWriter, dataSource, jobInstanceId);
+    }
+
+    /**
+     * Player seasons, player seasons per team, careers and team seasons from one pass over the games in primary
+     * key order, each level written by its own batched writer.
+     */
+    @Bean
+    public Step rollupStep(ItemStreamReader<Rollup> rollupItemReader, JdbcPlayerSummaryDao summaryWriter) {
+        Map<Rollup.Level, ItemWriter<? super Rollup>> writers = new EnumMap<>(Rollup.Level.class);
+        writers.put(Rollup.Level.PLAYER_YEAR, rollups -> summaryWriter.write(
+                rollups.stream().map(Rollup::toPlayerSummary).collect(Collectors.toList())));
+        for (Rollup.Level level : EnumSet.range(Rollup.Level.PLAYER_YEAR_TEAM, Rollup.Level.TEAM_YEAR)) {
+            writers.put(level, new JdbcRollupWriter(dataSource, level));
+        }
+        ClassifierCompositeItemWriter<Rollup> writer = new ClassifierCompositeItemWriter<>();
+        writer.setClassifier(rollup -> writers.get(rollup.getLevel()));
+        return this.<Rollup, Rollup>chunkStep("rollupStep")
+                .reader(rollupItemReader)
+                .writer(skipping("rollupStep", writer))
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public ItemStreamReader<Rollup> rollupItemReader() {
+        String where = playerSummaryWhere(new HashMap<>());
+        JdbcCursorItemReader<Game> games = new JdbcCursorItemReaderBuilder<Game>()
+                .dataSource(dataSource)
+                .name("rollupGameReader")
+                .saveState(false)
+                .verifyCursorPosition(verifyCursorPosition)
+                .fetchSize(summaryFetchSize)
+                .sql("SELECT player_id, year, team, week, opponent, " + String.join(", ", Rollup.STAT_COLUMNS)
+                        + " FROM GAME" + (where == null ? "" : " WHERE " + where)
+                        + " ORDER BY player_id, year, week, game_id")
+                .rowMapper((rs, rowNum) -> {
+                    Game game = new Game();
+                    game.setId(rs.getString(1));
+                    game.setYear(rs.getInt(2));
+                    game.setTeam(rs.getString(3));
+                    game.setWeek(rs.getInt(4));
+                    game.setOpponent(rs.getString(5));
+                    game.setCompletes(rs.getInt(6));
+                    game.setAttempts(rs.getInt(7));
+                    game.setPassingYards(rs.getInt(8));
+                    game.setPassingTd(rs.getInt(9));
+                    game.setInterceptions(rs.getInt(10));
+                    game.setRushes(rs.getInt(11));
+                    game.setRushYards(rs.getInt(12));
+                    game.setReceptions(rs.getInt(13));
+                    game.setReceptionYards(rs.getInt(14));
+                    game.setTotalTd(rs.getInt(15));
+                    return game;
+                })
+                .build();
+        return new RollupItemReader(games, Rollup.Level.values());
+    }
+
+    /**
+     * Top {@code leaderboard.size} players per season and stat, ranked from the finished player_summary table.
+     */
+    @Bean
+    public Step leaderboardStep() {
+        return stepBuilderFactory.get("leaderboardStep")
+                .tasklet(new LeaderboardTasklet(dataSource, leaderboardSize, summaryFetchSize))
+                .listener((StepExecutionListener) stepMetricsListener)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public GameReplaceTasklet gameReplaceTasklet(@Value("#{jobParameters['gameFile']}") String location,
+                                                 JdbcPlayerSummaryDao summaryWriter) {
+        return new GameReplaceTasklet(dataSource, location, aggregateSummaries ? summaryWriter : null,
+                incrementalSummaries);
+    }
+
+    @Bean
+    public Step gameReplaceStep(GameReplaceTasklet gameReplaceTasklet) {
+        return stepBuilderFactory.get("gameReplaceStep")
+                .tasklet(gameReplaceTasklet)
+                .listener((StepExecutionListener) stepMetricsListener)
+                .build();
+    }
+
+    @Bean
+    public Step touchedKeysCleanupStep() {
+        return stepBuilderFactory.get("touchedKeysCleanupStep")
+                .tasklet(new TouchedKeysCleanupTasklet(dataSource))
+                .listener((StepExecutionListener) stepMetricsListener)
+                .build();
+    }
+
+    @Bean
+    public Step summaryFlushStep(JdbcPlayerSummaryDao summaryWriter) {
+        return stepBuilderFactory.get("summaryFlushStep")
+                .tasklet(new PlayerSummaryFlushTasklet(dataSource, summaryWriter))
+                .listener((StepExecutionListener) stepMetricsListener)
                 .build();
     }
 
     @Bean
-    public Step playerLoadStep(FlatFileItemReader<Player> playerItemReader,
-                               JdbcBatchItemWriter<Player> playerDbWriter
+    public Step playerLoadStep(ItemStreamReader<Player> playerItemReader,
+                               ItemWriter<Player> playerWriter
     ) {
-        return stepBuilderFactory.get("playerLoadStep")
-                .<Player, Player>chunk(commitInterval)
+        return this.<Player, Player>chunkStep("playerLoadStep")
                 .reader(playerItemReader)
 //                .processor(processor)
-                .writer(playerDbWriter)
+                .writer(skipping("playerLoadStep", playerWriter))
                 .build();
     }
 
     @Bean
     public Step summarizationStep(
-            JdbcCursorItemReader<PlayerSummary> playerSummaryJdbcReader,
-            JdbcPlayerSummaryDao summaryWriter
+            @Qualifier("playerSummaryJdbcReader") ItemStreamReader<PlayerSummary> playerSummaryJdbcReader,
+            JdbcPlayerSummaryDao summaryWriter,
+            JobExplorer jobExplorer,
+            JdbcPartitionClaims jdbcPartitionClaims
     ) {
-        return stepBuilderFactory.get("summarizationStep")
-                .<PlayerSummary, PlayerSummary>chunk(commitInterval)
+        if (remoteSummaries) {
+            PartitionStepBuilder builder = stepBuilderFactory.get("summarizationStep")
+                    .partitioner("summarizationWorker", new PlayerRangePartitioner(dataSource))
+                    .partitionHandler(new RepositoryPollingPartitionHandler(jobExplorer, jdbcPartitionClaims,
+                            summaryGridSize, summaryPollMillis, summaryHeartbeatTimeoutMillis,
+                            summaryTimeoutMillis));
+            return builder.build();
+        }
+        return this.<PlayerSummary, PlayerSummary>chunkStep("summarizationStep")
                 .reader(playerSummaryJdbcReader)
-                .writer(summaryWriter)
+                .writer(skipping("summarizationStep", summaryWriter))
                 .build();
     }
 
+    /**
+     * Runs one player_id range of a remote {@code summarizationStep}, in whichever process claimed it.
+     */
+    @Bean
+    public Step summarizationWorkerStep(ItemStreamReader<PlayerSummary> playerSummaryPartitionReader,
+                                        JdbcPlayerSummaryDao summaryWriter) {
+        return this.<PlayerSummary, PlayerSummary>chunkStep("summarizationWorker")
+                .reader(playerSummaryPartitionReader)
+                .writer(skipping("summarizationWorker", summaryWriter))
+                .build();
+    }
+
+    @Bean
+    public JdbcPartitionClaims jdbcPartitionClaims(@Value("${spring.batch.table-prefix:BATCH_}") String tablePrefix) {
+        return new JdbcPartitionClaims(dataSource, tablePrefix);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "summary.worker.enabled", havingValue = "true")
+    public RemotePartitionWorker remotePartitionWorker(JobExplorer jobExplorer,
+                                                       JdbcPartitionClaims jdbcPartitionClaims,
+                                                       @Qualifier("summarizationWorkerStep") Step workerStep,
+                                                       @Value("${summary.worker.threads:1}") int threads,
+                                                       @Value("${summary.worker.idle.timeout.ms:0}") long idleMillis) {
+        return new RemotePartitionWorker(jobExplorer, jdbcPartitionClaims, workerStep, threads,
+                summaryPollMillis, idleMillis);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "daemon.enabled", havingValue = "true")
+    public FootballDaemon footballDaemon(JobLauncher jobLauncher,
+                                         @Qualifier("footballJob") Job footballJob,
+                                         @Value("${daemon.input.dir:inbox}") String inputDir,
+                                         @Value("${daemon.player.pattern:player*}") String playerPattern,
+                                         @Value("${daemon.game.pattern:game*}") String gamePattern) {
+        if (!JobRepositoryConfiguration.JDBC.equals(jobRepositoryMode)) {
+            throw new IllegalStateException("daemon.enabled restarts failed file sets and runs for a long time,"
+                    + " it needs job.repository.mode=" + JobRepositoryConfiguration.JDBC
+                    + ", not " + jobRepositoryMode);
+        }
+        return new FootballDaemon(jobLauncher, footballJob, Paths.get(inputDir), playerPattern, gamePattern);
+    }
+
     @Bean
     public ItemWriter<Player> playerLogWriter() {
         return new ListItemWriter<>();
     }
 
+    @Bean
+    public ItemWriter<Player> playerWriter(JdbcBatchItemWriter<Player> playerDbWriter) {
+        if (!"bulk".equals(loadMode)) {
+            return playerDbWriter;
+        }
+        return new MySqlBulkLoadItemWriter<>(dataSource, "player", true,
+                new String[]{"player_id", "last_name", "first_name", "position", "birth_year", "debut_year"},
+                p -> new Object[]{p.getId(), p.getLastName(), p.getFirstName(), p.getPosition(),
+                        p.getBirthYear(), p.getDebutYear()},
+                playerDbWriter);
+    }
+
+    /**
+     * Games are written with the job instance that loaded them, so that {@code gameReplaceStep} of a later run
+     * of the same game file can find and delete them.
+     */
+    @Bean
+    @StepScope
+    public ItemWriter<Game> gameWriter(
+            JdbcBatchItemWriter<Game> gameDbWriter,
+            @Value("#{stepExecution.jobExecution.jobInstance.instanceId}") Long jobInstanceId) {
+        if (!"bulk".equals(loadMode)) {
+            return gameDbWriter;
+        }
+        return new MySqlBulkLoadItemWriter<>(dataSource, "game", GAME_COLUMNS,
+                g -> gameValues(g, jobInstanceId), gameDbWriter);
+    }
+
+    private static Object[] gameValues(Game g, long jobInstanceId) {
+        return new Object[]{g.getId(), g.getYear(), g.getTeam(), g.getWeek(), g.getOpponent(),
+                g.getCompletes(), g.getAttempts(), g.getPassingYards(), g.getPassingTd(),
+                g.getInterceptions(), g.getRushes(), g.getRushYards(), g.getReceptions(),
+                g.getReceptionYards(), g.getTotalTd(), jobInstanceId};
+    }
+
     @Bean
     public JdbcBatchItemWriter<Player> playerDbWriter() {
         return new JdbcBatchItemWriterBuilder<Player>()
                 .dataSource(dataSource)
                 .sql("INSERT INTO player (player_id, last_name, first_name, position, birth_year, debut_year)" +
-                        " VALUES (:id, :lastName, :firstName, :position, :birthYear, :debutYear)")
+                        " VALUES (:id, :lastName, :firstName, :position, :birthYear, :debutYear)" +
+                        " ON DUPLICATE KEY UPDATE last_name = VALUES(last_name), first_name = VALUES(first_name)," +
+                        " position = VALUES(position), birth_year = VALUES(birth_year)," +
+                        " debut_year = VALUES(debut_year)")
                 .beanMapped()
+                // MySQL reports 0 rows for a player that is already stored unchanged
+                .assertUpdates(false)
                 .build();
     }
 
     @Bean
-    public JdbcBatchItemWriter<Game> gameDbWriter() {
+    @StepScope
+    public JdbcBatchItemWriter<Game> gameDbWriter(
+            @Value("#{stepExecution.jobExecution.jobInstance.instanceId}") Long jobInstanceId) {
         return new JdbcBatchItemWriterBuilder<Game>()
                 .dataSource(dataSource)
-                .sql("INSERT INTO game (player_id, year, team, week, opponent, completes," +
-                        "attempts, passing_yards, passing_td, interceptions, rushes," +
-                        "rush_yards, receptions, reception_yards, total_td)" +
-                        " VALUES (:id, :year, :team, :week, :opponent, :completes, :attempts," +
-                        ":passingYards, :passingTd, :interceptions, :rushes, :rushYards, " +
-                        ":receptions, :receptionYards, :totalTd)")
-                .beanMapped()
+                .sql("INSERT INTO game (" + String.join(", ", GAME_COLUMNS) + ")" +
+                        " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")
+                .itemPreparedStatementSetter((game, ps) -> {
+                    Object[] values = gameValues(game, jobInstanceId);
+                    for (int i = 0; i < values.length; i++) {
+                        ps.setObject(i + 1, values[i]);
+                    }
+                })
                 .build();
     }
 
     @Bean
     public JdbcPlayerSummaryDao summaryWriter() {
-        return new JdbcPlayerSummaryDao(dataSource);
+        return new JdbcPlayerSummaryDao(dataSource, summaryRowsPerStatement,
+                aggregateSummaries ? JdbcPlayerSummaryDao.WriteMode.ACCUMULATE : JdbcPlayerSummaryDao.WriteMode.UPSERT);
     }
 }
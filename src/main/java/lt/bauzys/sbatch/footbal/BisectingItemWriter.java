@@ -0,0 +1,73 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.List;
+
+/**
+ * Writes a chunk through the delegate inside a savepoint of the chunk transaction. When the delegate refuses
+ * it with a non-transient data error, such as a constraint violation, the writer rolls back to the savepoint,
+ * splits the items in half and writes each half the same way, until the failing items are alone and rejected
+ * through the step's {@link RejectLog.StepRejects}. One bad item in a chunk of {@code n} costs about
+ * {@code 2 log2(n)} extra writes instead of {@code n} single-item writes.
+ * <p>
+ * Steps without a skip limit write straight through. Transient errors, like a deadlock or a lost connection,
+ * fail the chunk as before. The delegate must not keep state across writes, a rolled back half is written
+ * again.
+ */
+public class BisectingItemWriter<T> implements ItemWriter<T> {
+    private final ItemWriter<T> delegate;
+    private final RejectLog rejectLog;
+    private final TransactionTemplate savepoint;
+
+    public BisectingItemWriter(ItemWriter<T> delegate, RejectLog rejectLog,
+                               PlatformTransactionManager transactionManager) {
+        this.delegate = delegate;
+        this.rejectLog = rejectLog;
+        this.savepoint = new TransactionTemplate(transactionManager);
+        this.savepoint.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+    }
+
+    @Override
+    public void write(List<? extends T> items) throws Exception {
+        RejectLog.StepRejects rejects = rejectLog.current();
+        if (rejects == null) {
+            delegate.write(items);
+            return;
+        }
+        rejects.recordReads();
+        if (!items.isEmpty()) {
+            write(items, rejects);
+        }
+    }
+
+    private void write(List<? extends T> items, RejectLog.StepRejects rejects) throws Exception {
+        try {
+            savepoint.execute(status -> {
+                try {
+                    delegate.write(items);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new UndeclaredThrowableException(e);
+                }
+                return null;
+            });
+        } catch (UndeclaredThrowableException e) {
+            throw (Exception) e.getUndeclaredThrowable();
+        } catch (NonTransientDataAccessException e) {
+            if (items.size() == 1) {
+                rejects.rejectWrite(items.get(0), e);
+                return;
+            }
+            int half = items.size() / 2;
+            write(items.subList(0, half), rejects);
+            write(items.subList(half, items.size()), rejects);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package lt.bauzys.sbatch.footbal;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.JobRestartException;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes the per-chunk step execution updates, counts and execution context, only every {@code flushChunks}
+ * chunks or once {@code flushMillis} passed since the last write. The first update of a step, which marks it
+ * started, and every update after it left {@link BatchStatus#STARTED} are always written, so the repository
+ * is complete once a step ends. Job level calls pass straight through.
+ * <p>
+ * Chunks committed between two writes are not recorded: after a crash the step restarts from the last
+ * written state and reads those items again, which is why the job is not restartable in this mode.
+ * A stop request is also only noticed when an update is written.
+ * Written and deferred updates are counted as {@code football.repository.step.updates}, the time spent
+ * writing them as {@code football.repository.step.update}. With {@code flushChunks} of 1 every update is
+ * written and only measured.
+ */
+public class BufferingJobRepository implements JobRepository {
+    private final JobRepository delegate;
+    private final int flushChunks;
+    private final long flushMillis;
+    private final Map<Long, Buffer> buffers = new ConcurrentHashMap<>();
+    private final Counter written;
+    private final Counter deferred;
+    private final Timer updateTimer;
+
+    public BufferingJobRepository(JobRepository delegate, int flushChunks, long flushMillis,
+                                  MeterRegistry registry) {
+        this.delegate = delegate;
+        this.flushChunks = Math.max(1, flushChunks);
+        this.flushMillis = flushMillis;
+        this.written = registry.counter("football.repository.step.updates", "result", "written");
+        this.deferred = registry.counter("football.repository.step.updates", "result", "deferred");
+        this.updateTimer = registry.timer("football.repository.step.update");
+    }
+
+    /**
+     * Chunk steps update the execution context first and then the step execution, both decided here.
+     */
+    @Override
+    public void updateExecutionContext(StepExecution stepExecution) {
+        Buffer buffer = buffers.get(stepExecution.getId());
+        if (buffer != null && stepExecution.getStatus() == BatchStatus.STARTED && !buffer.due()) {
+            buffer.contextDeferred = true;
+            return;
+        }
+        if (buffer != null) {
+            buffer.contextDeferred = false;
+        }
+        updateTimer.record(() -> delegate.updateExecutionContext(stepExecution));
+    }
+
+    @Override
+    public void update(StepExecution stepExecution) {
+        if (stepExecution.getStatus() != BatchStatus.STARTED) {
+            Buffer buffer = buffers.remove(stepExecution.getId());
+            if (buffer != null && buffer.contextDeferred) {
+                updateTimer.record(() -> delegate.updateExecutionContext(stepExecution));
+            }
+            write(stepExecution);
+            return;
+        }
+        Buffer buffer = buffers.get(stepExecution.getId());
+        if (buffer == null) {
+            buffers.put(stepExecution.getId(), new Buffer());
+            write(stepExecution);
+        } else if (buffer.contextDeferred) {
+            buffer.chunks++;
+            deferred.increment();
+        } else {
+            buffer.chunks = 0;
+            buffer.lastWrite = System.currentTimeMillis();
+            write(stepExecution);
+        }
+    }
+
+    private void write(StepExecution stepExecution) {
+        updateTimer.record(() -> delegate.update(stepExecution));
+        written.increment();
+    }
+
+    /**
+     * Per step execution, only touched by the thread running that step.
+     */
+    private class Buffer {
+        private int chunks;
+        private long lastWrite = System.currentTimeMillis();
+        private boolean contextDeferred;
+
+        private boolean due() {
+            return chunks + 1 >= flushChunks || System.currentTimeMillis() - lastWrite >= flushMillis;
+        }
+    }
+
+    @Override
+    public boolean isJobInstanceExists(String jobName, JobParameters jobParameters) {
+        return delegate.isJobInstanceExists(jobName, jobParameters);
+    }
+
+    @Override
+    public JobInstance createJobInstance(String jobName, JobParameters jobParameters) {
+        return delegate.createJobInstance(jobName, jobParameters);
+    }
+
+    @Override
+    public JobExecution createJobExecution(JobInstance jobInstance, JobParameters jobParameters,
+                                           String jobConfigurationLocation) {
+        return delegate.createJobExecution(jobInstance, jobParameters, jobConfigurationLocation);
+    }
+
+    @Override
+    public JobExecution createJobExecution(String jobName, JobParameters jobParameters)
+            throws JobExecutionAlreadyRunningException, JobRestartException, JobInstanceAlreadyCompleteException {
+        return delegate.createJobExecution(jobName, jobParameters);
+    }
+
+    @Override
+    public void update(JobExecution jobExecution) {
+        delegate.update(jobExecution);
+    }
+
+    @Override
+    public void add(StepExecution stepExecution) {
+        delegate.add(stepExecution);
+    }
+
+    @Override
+    public void addAll(Collection<StepExecution> stepExecutions) {
+        delegate.addAll(stepExecutions);
+    }
+
+    @Override
+    public void updateExecutionContext(JobExecution jobExecution) {
+        delegate.updateExecutionContext(jobExecution);
+    }
+
+    @Override
+    public StepExecution getLastStepExecution(JobInstance jobInstance, String stepName) {
+        return delegate.getLastStepExecution(jobInstance, stepName);
+    }
+
+    @Override
+    public int getStepExecutionCount(JobInstance jobInstance, String stepName) {
+        return delegate.getStepExecutionCount(jobInstance, stepName);
+    }
+
+    @Override
+    public JobExecution getLastJobExecution(String jobName, JobParameters jobParameters) {
+        return delegate.getLastJobExecution(jobName, jobParameters);
+    }
+}
@@ -0,0 +1,297 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary, columnar copy of a game file. Rows are stored in blocks of up to {@link #BLOCK_ROWS}; inside a
+ * block every column is a contiguous array of int values. Player ids, teams and opponents are dictionary
+ * encoded, and each column of a block is stored as offsets from its minimum in 1, 2 or 4 bytes, whichever
+ * holds the block's range. The dictionaries and the block offsets sit in a footer:
+ *
+ * <pre>
+ * header   int magic, int version
+ * block*   15 x (int base, byte width, byte[rows * width]) in {@link GameFieldSetMapper#NAMES} order
+ * footer   int players, UTF*, int teams, UTF*, int blocks, (long offset, int length, int rows)*
+ * trailer  long footer offset, int magic
+ * </pre>
+ */
+public final class ColumnarGameFile {
+    public static final String START_ROW = "startRow";
+    public static final String END_ROW = "endRow";
+
+    static final int MAGIC = 0x46424743;
+    static final int VERSION = 1;
+    static final int BLOCK_ROWS = 65536;
+    static final int COLUMNS = 15;
+    private static final int HEADER_BYTES = 8;
+    private static final int TRAILER_BYTES = 12;
+
+    private final String[] players;
+    private final String[] teams;
+    private final long[] blockOffsets;
+    private final int[] blockLengths;
+    private final int[] blockRows;
+    private final long rows;
+
+    private ColumnarGameFile(String[] players, String[] teams, long[] blockOffsets, int[] blockLengths,
+                             int[] blockRows) {
+        this.players = players;
+        this.teams = teams;
+        this.blockOffsets = blockOffsets;
+        this.blockLengths = blockLengths;
+        this.blockRows = blockRows;
+        long total = 0;
+        for (int count : blockRows) {
+            total += count;
+        }
+        this.rows = total;
+    }
+
+    String[] getPlayers() {
+        return players;
+    }
+
+    String[] getTeams() {
+        return teams;
+    }
+
+    int getBlockCount() {
+        return blockOffsets.length;
+    }
+
+    long getBlockOffset(int block) {
+        return blockOffsets[block];
+    }
+
+    int getBlockLength(int block) {
+        return blockLengths[block];
+    }
+
+    int getBlockRows(int block) {
+        return blockRows[block];
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public static boolean isColumnar(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES + TRAILER_BYTES) {
+                return false;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            return header.getInt(0) == MAGIC && header.getInt(4) == VERSION;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static ColumnarGameFile open(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+        channel.read(trailer, size - TRAILER_BYTES);
+        if (trailer.getInt(8) != MAGIC) {
+            throw new IOException("Not a columnar game file, or it was not completely written");
+        }
+        long footerOffset = trailer.getLong(0);
+        ByteBuffer footer = ByteBuffer.allocate((int) (size - TRAILER_BYTES - footerOffset));
+        while (footer.hasRemaining()) {
+            if (channel.read(footer, footerOffset + footer.position()) < 0) {
+                throw new IOException("Truncated columnar game file");
+            }
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(footer.array()));
+        String[] players = readDictionary(in);
+        String[] teams = readDictionary(in);
+        int blocks = in.readInt();
+        long[] offsets = new long[blocks];
+        int[] lengths = new int[blocks];
+        int[] rows = new int[blocks];
+        for (int i = 0; i < blocks; i++) {
+            offsets[i] = in.readLong();
+            lengths[i] = in.readInt();
+            rows[i] = in.readInt();
+        }
+        return new ColumnarGameFile(players, teams, offsets, lengths, rows);
+    }
+
+    /**
+     * Splits the rows into up to {@code gridSize} ranges of whole blocks, as {@link #START_ROW} (inclusive)
+     * and {@link #END_ROW} (exclusive).
+     */
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        Map<String, ExecutionContext> partitions = new HashMap<>();
+        long start = 0;
+        long end = 0;
+        int block = 0;
+        for (int i = 1; i <= gridSize && block < blockRows.length; i++) {
+            long target = rows * i / gridSize;
+            while (block < blockRows.length && (end < target || i == gridSize)) {
+                end += blockRows[block++];
+            }
+            if (end > start) {
+                ExecutionContext context = new ExecutionContext();
+                context.putLong(START_ROW, start);
+                context.putLong(END_ROW, end);
+                partitions.put("partition" + partitions.size(), context);
+                start = end;
+            }
+        }
+        if (partitions.isEmpty()) {
+            partitions.put("partition0", new ExecutionContext());
+        }
+        return partitions;
+    }
+
+    /**
+     * Drains {@code reader} into a columnar file at {@code target}. The file is written next to the target
+     * and moved into place when complete, so a crash never leaves a partial file under the target name.
+     */
+    public static long write(ItemReader<Game> reader, Path target) throws Exception {
+        Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(), ".tmp");
+        long rows = 0;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION);
+            header.flip();
+            writeFully(channel, header);
+
+            Dictionary players = new Dictionary();
+            Dictionary teams = new Dictionary();
+            int[][] columns = new int[COLUMNS][BLOCK_ROWS];
+            ByteBuffer blockBuffer = ByteBuffer.allocateDirect(COLUMNS * (5 + BLOCK_ROWS * 4));
+            List<long[]> blocks = new ArrayList<>();
+            int count = 0;
+            Game game;
+            do {
+                game = reader.read();
+                if (game != null) {
+                    int[] row = {players.code(game.getId()), game.getYear(), teams.code(game.getTeam()),
+                            game.getWeek(), teams.code(game.getOpponent()), game.getCompletes(),
+                            game.getAttempts(), game.getPassingYards(), game.getPassingTd(),
+                            game.getInterceptions(), game.getRushes(), game.getRushYards(), game.getReceptions(),
+                            game.getReceptionYards(), game.getTotalTd()};
+                    for (int c = 0; c < COLUMNS; c++) {
+                        columns[c][count] = row[c];
+                    }
+                    count++;
+                }
+                if (count == BLOCK_ROWS || (game == null && count > 0)) {
+                    blockBuffer.clear();
+                    for (int[] column : columns) {
+                        putColumn(blockBuffer, column, count);
+                    }
+                    blockBuffer.flip();
+                    blocks.add(new long[]{channel.position(), blockBuffer.remaining(), count});
+                    writeFully(channel, blockBuffer);
+                    rows += count;
+                    count = 0;
+                }
+            } while (game != null);
+
+            long footerOffset = channel.position();
+            ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+            try (DataOutputStream footer = new DataOutputStream(footerBytes)) {
+                players.writeTo(footer);
+                teams.writeTo(footer);
+                footer.writeInt(blocks.size());
+                for (long[] block : blocks) {
+                    footer.writeLong(block[0]);
+                    footer.writeInt((int) block[1]);
+                    footer.writeInt((int) block[2]);
+                }
+                footer.writeLong(footerOffset);
+                footer.writeInt(MAGIC);
+            }
+            writeFully(channel, ByteBuffer.wrap(footerBytes.toByteArray()));
+            channel.force(false);
+        } catch (Exception e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rows;
+    }
+
+    private static void putColumn(ByteBuffer buffer, int[] column, int count) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, column[i]);
+            max = Math.max(max, column[i]);
+        }
+        long range = (long) max - min;
+        int width = range <= 0xFF ? 1 : range <= 0xFFFF ? 2 : 4;
+        int base = width == 4 ? 0 : min;
+        buffer.putInt(base);
+        buffer.put((byte) width);
+        for (int i = 0; i < count; i++) {
+            int value = column[i] - base;
+            if (width == 1) {
+                buffer.put((byte) value);
+            } else if (width == 2) {
+                buffer.putShort((short) value);
+            } else {
+                buffer.putInt(value);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static String[] readDictionary(DataInputStream in) throws IOException {
+        String[] values = new String[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readUTF();
+        }
+        return values;
+    }
+
+    private static class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int code(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(values.size());
+            for (String value : values) {
+                out.writeUTF(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads games back from a {@link ColumnarGameFile}, memory mapping one block at a time. Strings come from the
+ * file's dictionaries, so games of the same player share their id, team and opponent instances.
+ * The row index is saved as restart state. An optional {@code [startRow, endRow)} range restricts the reader
+ * to one partition.
+ */
+public class ColumnarGameItemReader extends ItemStreamSupport implements ItemStreamReader<Game> {
+    private static final String ROW = "row";
+
+    private final Resource resource;
+    private final long startRow;
+    private final long endRow;
+    private SymbolTable symbolTable;
+
+    private FileChannel channel;
+    private ColumnarGameFile file;
+    private long limit;
+    private long row;
+
+    private int block;
+    private long blockStart;
+    private long blockEnd;
+    private final Column[] columns = new Column[ColumnarGameFile.COLUMNS];
+
+    public ColumnarGameItemReader(Resource resource) {
+        this(resource, 0, -1);
+    }
+
+    public ColumnarGameItemReader(Resource resource, long startRow, long endRow) {
+        setName("columnarGameItemReader");
+        this.resource = resource;
+        this.startRow = startRow;
+        this.endRow = endRow;
+    }
+
+    /**
+     * Canonicalizes the file's dictionaries through {@code symbolTable}, so its games share instances with
+     * the other readers of the job.
+     */
+    public void setSymbolTable(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) {
+        try {
+            channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ);
+            file = ColumnarGameFile.open(channel);
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to open " + resource.getDescription(), e);
+        }
+        if (symbolTable != null) {
+            intern(file.getPlayers());
+            intern(file.getTeams());
+        }
+        limit = endRow < 0 ? file.getRows() : Math.min(endRow, file.getRows());
+        row = executionContext.getLong(getExecutionContextKey(ROW), startRow);
+        block = -1;
+        blockStart = 0;
+        blockEnd = 0;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+        executionContext.putLong(getExecutionContextKey(ROW), row);
+    }
+
+    @Override
+    public void close() {
+        for (int c = 0; c < columns.length; c++) {
+            columns[c] = null;
+        }
+        file = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new ItemStreamException("Failed to close " + resource.getDescription(), e);
+            } finally {
+                channel = null;
+            }
+        }
+    }
+
+    @Override
+    public Game read() throws IOException {
+        if (row >= limit) {
+            return null;
+        }
+        if (row < blockStart || row >= blockEnd) {
+            map(row);
+        }
+        int i = (int) (row - blockStart);
+        row++;
+        String[] players = file.getPlayers();
+        String[] teams = file.getTeams();
+        Game g = new Game();
+        g.setId(players[columns[0].get(i)]);
+        g.setYear(columns[1].get(i));
+        g.setTeam(teams[columns[2].get(i)]);
+        g.setWeek(columns[3].get(i));
+        g.setOpponent(teams[columns[4].get(i)]);
+        g.setCompletes(columns[5].get(i));
+        g.setAttempts(columns[6].get(i));
+        g.setPassingYards(columns[7].get(i));
+        g.setPassingTd(columns[8].get(i));
+        g.setInterceptions(columns[9].get(i));
+        g.setRushes(columns[10].get(i));
+        g.setRushYards(columns[11].get(i));
+        g.setReceptions(columns[12].get(i));
+        g.setReceptionYards(columns[13].get(i));
+        g.setTotalTd(columns[14].get(i));
+        return g;
+    }
+
+    private void intern(String[] dictionary) {
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = symbolTable.intern(dictionary[i]);
+        }
+    }
+
+    private void map(long target) throws IOException {
+        if (block < 0 || target < blockStart) {
+            block = 0;
+            blockEnd = 0;
+        } else {
+            block++;
+        }
+        for (; ; block++) {
+            blockStart = blockEnd;
+            blockEnd = blockStart + file.getBlockRows(block);
+            if (target < blockEnd) {
+                break;
+            }
+        }
+        int rows = file.getBlockRows(block);
+        ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, file.getBlockOffset(block),
+                file.getBlockLength(block));
+        for (int c = 0; c < columns.length; c++) {
+            int base = bytes.getInt();
+            int width = bytes.get();
+            ByteBuffer values = bytes.slice();
+            columns[c] = new Column(values, width, base);
+            bytes.position(bytes.position() + rows * width);
+        }
+    }
+
+    private static class Column {
+        private final ByteBuffer values;
+        private final int width;
+        private final int base;
+
+        Column(ByteBuffer values, int width, int base) {
+            this.values = values;
+            this.width = width;
+            this.base = base;
+        }
+
+        int get(int i) {
+            switch (width) {
+                case 1:
+                    return base + (values.get(i) & 0xFF);
+                case 2:
+                    return base + (values.getShort(i * 2) & 0xFFFF);
+                default:
+                    return base + values.getInt(i * 4);
+            }
+        }
+    }
+}
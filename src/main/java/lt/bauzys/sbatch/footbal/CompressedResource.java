@@ -0,0 +1,228 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Decompressed view of a gzip or zstd compressed resource. Decompression runs on its own thread, which hands
+ * blocks of decompressed bytes to the reading thread, so inflating and tokenizing overlap.
+ * zstd needs {@code com.github.luben:zstd-jni} on the classpath.
+ * The view is a stream only: it is not a file, so readers fall back to line counts for restart state and
+ * the file is not split into byte range partitions.
+ */
+public class CompressedResource extends AbstractResource {
+    private static final int BLOCK_SIZE = 256 * 1024;
+    private static final int QUEUE_BLOCKS = 8;
+
+    public enum Codec {
+        GZIP, ZSTD
+    }
+
+    private final Resource resource;
+    private final Codec codec;
+
+    public CompressedResource(Resource resource, Codec codec) {
+        this.resource = resource;
+        this.codec = codec;
+    }
+
+    /**
+     * Wraps {@code resource} when its extension ({@code .gz}, {@code .zst}) or its first bytes say it is
+     * compressed, and returns it unchanged otherwise.
+     */
+    public static Resource detect(Resource resource) throws IOException {
+        Codec codec = codec(resource);
+        return codec == null ? resource : new CompressedResource(resource, codec);
+    }
+
+    private static Codec codec(Resource resource) throws IOException {
+        String name = resource.getFilename() == null ? "" : resource.getFilename().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz") || name.endsWith(".gzip")) {
+            return Codec.GZIP;
+        }
+        if (name.endsWith(".zst") || name.endsWith(".zstd")) {
+            return Codec.ZSTD;
+        }
+        if (!resource.isReadable()) {
+            return null;
+        }
+        byte[] magic = new byte[4];
+        int read = 0;
+        try (InputStream in = resource.getInputStream()) {
+            for (int n; read < magic.length && (n = in.read(magic, read, magic.length - read)) > 0; ) {
+                read += n;
+            }
+        }
+        if (read >= 2 && (magic[0] & 0xFF) == 0x1F && (magic[1] & 0xFF) == 0x8B) {
+            return Codec.GZIP;
+        }
+        if (read == 4 && (magic[0] & 0xFF) == 0x28 && (magic[1] & 0xFF) == 0xB5 && (magic[2] & 0xFF) == 0x2F
+                && (magic[3] & 0xFF) == 0xFD) {
+            return Codec.ZSTD;
+        }
+        return null;
+    }
+
+    public Codec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public boolean exists() {
+        return resource.exists();
+    }
+
+    @Override
+    public boolean isReadable() {
+        return resource.isReadable();
+    }
+
+    @Override
+    public String getFilename() {
+        return resource.getFilename();
+    }
+
+    @Override
+    public String getDescription() {
+        return codec.name().toLowerCase(Locale.ROOT) + " decompressed " + resource.getDescription();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return new PipelinedInputStream(decompress(resource.getInputStream()), "decompress-" + getFilename());
+    }
+
+    private InputStream decompress(InputStream in) throws IOException {
+        if (codec == Codec.GZIP) {
+            return new GZIPInputStream(in, BLOCK_SIZE);
+        }
+        try {
+            return (InputStream) Class.forName("com.github.luben.zstd.ZstdInputStream")
+                    .getConstructor(InputStream.class)
+                    .newInstance(in);
+        } catch (ClassNotFoundException e) {
+            in.close();
+            throw new IOException("Reading zstd compressed " + resource.getDescription()
+                    + " needs com.github.luben:zstd-jni on the classpath", e);
+        } catch (InvocationTargetException e) {
+            in.close();
+            throw new IOException("Failed to open " + resource.getDescription(), e.getCause());
+        } catch (ReflectiveOperationException e) {
+            in.close();
+            throw new IOException("Failed to open " + resource.getDescription(), e);
+        }
+    }
+
+    /**
+     * Reads {@code source} ahead on a daemon thread, at most {@link #QUEUE_BLOCKS} blocks ahead of the consumer.
+     * A read failure is rethrown to the consumer after the blocks read before it.
+     */
+    private static class PipelinedInputStream extends InputStream {
+        private static final byte[] END = new byte[0];
+
+        private final BlockingQueue<byte[]> blocks = new ArrayBlockingQueue<>(QUEUE_BLOCKS);
+        private final Thread producer;
+        private volatile IOException failure;
+        private volatile boolean closed;
+
+        private byte[] block;
+        private int position;
+
+        PipelinedInputStream(InputStream source, String name) {
+            producer = new Thread(() -> produce(source), name);
+            producer.setDaemon(true);
+            producer.start();
+        }
+
+        private void produce(InputStream source) {
+            try (InputStream in = source) {
+                while (!closed) {
+                    byte[] buffer = new byte[BLOCK_SIZE];
+                    int length = 0;
+                    for (int n; length < buffer.length && (n = in.read(buffer, length, buffer.length - length)) > 0; ) {
+                        length += n;
+                    }
+                    if (length == 0) {
+                        break;
+                    }
+                    blocks.put(length == buffer.length ? buffer : Arrays.copyOf(buffer, length));
+                }
+            } catch (IOException e) {
+                failure = e;
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                if (!closed) {
+                    blocks.put(END);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private boolean nextBlock() throws IOException {
+            if (block == END) {
+                return false;
+            }
+            try {
+                block = blocks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for decompressed data");
+            }
+            position = 0;
+            if (block == END) {
+                if (failure != null) {
+                    throw failure;
+                }
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if ((block == null || position == block.length) && !nextBlock()) {
+                return -1;
+            }
+            return block[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if ((block == null || position == block.length) && !nextBlock()) {
+                return -1;
+            }
+            int n = Math.min(len, block.length - position);
+            System.arraycopy(block, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return block == null || block == END ? 0 : block.length - position;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            producer.interrupt();
+            blocks.clear();
+        }
+    }
+}
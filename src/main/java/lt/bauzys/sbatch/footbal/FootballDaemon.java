@@ -0,0 +1,185 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@code footballJob} for every file set that arrives in {@code inputDir}, in this process and its warm
+ * application context. A file set is a directory {@code <name>} holding the player and game files, announced
+ * by an empty marker file {@code <name>.ready} next to it once all its files are written. The files are
+ * matched by {@code playerPattern} and {@code gamePattern}, so a set may hold several, compressed, files of each.
+ * <p>
+ * Sets run one at a time in the order they arrive, later arrivals wait in a queue. When a set's job ends its
+ * marker is renamed to {@code <name>.done} or {@code <name>.failed}; markers still {@code .ready} when the
+ * daemon starts, or missed because the watch queue overflowed, are found by a scan of the directory.
+ * A failed set is retried by creating its marker again, which restarts the failed job instance.
+ */
+public class FootballDaemon implements ApplicationRunner, DisposableBean {
+    static final String READY = ".ready";
+    static final String DONE = ".done";
+    static final String FAILED = ".failed";
+
+    private static final Logger log = LoggerFactory.getLogger(FootballDaemon.class);
+
+    private final JobLauncher jobLauncher;
+    private final Job job;
+    private final Path inputDir;
+    private final String playerPattern;
+    private final String gamePattern;
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), new CustomizableThreadFactory("daemon-"));
+    private volatile WatchService watchService;
+
+    public FootballDaemon(JobLauncher jobLauncher, Job job, Path inputDir, String playerPattern,
+                          String gamePattern) {
+        this.jobLauncher = jobLauncher;
+        this.job = job;
+        this.inputDir = inputDir.toAbsolutePath();
+        this.playerPattern = playerPattern;
+        this.gamePattern = gamePattern;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException, InterruptedException {
+        Files.createDirectories(inputDir);
+        watchService = inputDir.getFileSystem().newWatchService();
+        inputDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+        log.info("Watching {} for {} markers", inputDir, READY);
+        scan();
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        scan();
+                    } else {
+                        arrived((Path) event.context());
+                    }
+                }
+                if (!key.reset()) {
+                    log.warn("{} is no longer accessible, stopping", inputDir);
+                    return;
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            log.info("Stopped watching {}", inputDir);
+        }
+    }
+
+    /**
+     * Queues the markers already in the directory, by name.
+     */
+    private void scan() throws IOException {
+        List<Path> markers = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(inputDir, "*" + READY)) {
+            entries.forEach(markers::add);
+        }
+        Collections.sort(markers);
+        for (Path marker : markers) {
+            arrived(marker.getFileName());
+        }
+    }
+
+    private void arrived(Path fileName) {
+        String name = fileName.toString();
+        if (!name.endsWith(READY) || name.length() == READY.length()) {
+            return;
+        }
+        String fileSet = name.substring(0, name.length() - READY.length());
+        if (queued.add(fileSet)) {
+            long arrival = System.currentTimeMillis();
+            executor.execute(() -> {
+                try {
+                    launch(fileSet, arrival);
+                } finally {
+                    queued.remove(fileSet);
+                }
+            });
+        }
+    }
+
+    private void launch(String fileSet, long arrival) {
+        Path marker = inputDir.resolve(fileSet + READY);
+        if (!Files.exists(marker)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        boolean completed;
+        try {
+            JobExecution execution = jobLauncher.run(job, jobParameters(fileSet));
+            completed = execution.getStatus() == BatchStatus.COMPLETED;
+            log.info("File set {} {} in {} ms after waiting {} ms", fileSet, execution.getStatus(),
+                    System.currentTimeMillis() - start, start - arrival);
+        } catch (JobInstanceAlreadyCompleteException e) {
+            log.info("File set {} was loaded before", fileSet);
+            completed = true;
+        } catch (Exception e) {
+            log.error("File set {} could not be launched", fileSet, e);
+            completed = false;
+        }
+        try {
+            Files.move(marker, inputDir.resolve(fileSet + (completed ? DONE : FAILED)),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.error("Could not mark file set {} as finished", fileSet, e);
+        }
+    }
+
+    /**
+     * The set's directory and file patterns identify the job instance, so a set that failed is restarted.
+     */
+    JobParameters jobParameters(String fileSet) {
+        String directory = inputDir.resolve(fileSet).toUri().toString();
+        if (!directory.endsWith("/")) {
+            directory += "/";
+        }
+        return new JobParametersBuilder()
+                .addString("playerFile", directory + playerPattern)
+                .addString("gameFile", directory + gamePattern)
+                .toJobParameters();
+    }
+
+    /**
+     * Stops watching and lets the running job finish, queued sets keep their marker for the next start.
+     */
+    @Override
+    public void destroy() throws InterruptedException, IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        executor.getQueue().clear();
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+}
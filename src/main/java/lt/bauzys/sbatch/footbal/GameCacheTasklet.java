@@ -0,0 +1,89 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Makes sure a {@link ColumnarGameFile} copy of the game file exists in the cache directory and passes its
+ * path to the game load as the {@link #CACHE_FILE} job execution context entry. Copies are named after the
+ * SHA-256 digest of the source, so an unchanged file is converted once and a changed one gets a new copy.
+ * A game file that already is columnar is used as it is.
+ */
+public class GameCacheTasklet implements Tasklet {
+    public static final String CACHE_FILE = "gameCacheFile";
+
+    private static final Logger log = LoggerFactory.getLogger(GameCacheTasklet.class);
+
+    private final Resource gameFile;
+    private final ItemStreamReader<Game> source;
+    private final Path cacheDir;
+
+    public GameCacheTasklet(Resource gameFile, ItemStreamReader<Game> source, Path cacheDir) {
+        this.gameFile = gameFile;
+        this.source = source;
+        this.cacheDir = cacheDir;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        Path cacheFile = gameFile.isFile() && ColumnarGameFile.isColumnar(gameFile.getFile().toPath())
+                ? gameFile.getFile().toPath()
+                : cacheFile();
+        chunkContext.getStepContext().getStepExecution().getJobExecution().getExecutionContext()
+                .putString(CACHE_FILE, cacheFile.toAbsolutePath().toString());
+        return RepeatStatus.FINISHED;
+    }
+
+    private Path cacheFile() throws Exception {
+        Path cacheFile = cacheDir.resolve(checksum() + ".fbgc");
+        if (Files.exists(cacheFile)) {
+            log.info("Reading games from cached {}", cacheFile);
+            return cacheFile;
+        }
+        Files.createDirectories(cacheDir);
+        long started = System.currentTimeMillis();
+        source.open(new ExecutionContext());
+        try {
+            long rows = ColumnarGameFile.write(source, cacheFile);
+            log.info("Cached {} games of {} in {} ms as {}", rows, gameFile.getDescription(),
+                    System.currentTimeMillis() - started, cacheFile);
+        } finally {
+            source.close();
+        }
+        return cacheFile;
+    }
+
+    private String checksum() throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = gameFile.getInputStream()) {
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,49 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.batch.item.file.mapping.FieldSetMapper;
+import org.springframework.batch.item.file.transform.FieldSet;
+
+public class GameFieldSetMapper implements FieldSetMapper<Game> {
+
+    static final String[] NAMES = new String[]{"ID", "year", "team", "week", "opponent", "completes",
+            "attempts", "passingYards", "passingTd", "interceptions",
+            "rushes", "rushYards", "receptions", "receptionYards", "totalTd"};
+
+    private final SymbolTable symbols;
+
+    public GameFieldSetMapper() {
+        this(null);
+    }
+
+    /**
+     * Canonicalizes ids, teams and opponents through {@code symbols}, when not {@code null}.
+     */
+    public GameFieldSetMapper(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    @Override
+    public Game mapFieldSet(FieldSet fieldSet) {
+        Game g = new Game();
+        g.setId(symbol(fieldSet.readString("ID")));
+        g.setYear(fieldSet.readInt("year"));
+        g.setTeam(symbol(fieldSet.readString("team")));
+        g.setWeek(fieldSet.readInt("week"));
+        g.setOpponent(symbol(fieldSet.readString("opponent")));
+        g.setCompletes(fieldSet.readInt("completes"));
+        g.setAttempts(fieldSet.readInt("attempts"));
+        g.setPassingYards(fieldSet.readInt("passingYards"));
+        g.setPassingTd(fieldSet.readInt("passingTd"));
+        g.setInterceptions(fieldSet.readInt("interceptions"));
+        g.setRushes(fieldSet.readInt("rushes"));
+        g.setRushYards(fieldSet.readInt("rushYards"));
+        g.setReceptions(fieldSet.readInt("receptions", 0));
+        g.setReceptionYards(fieldSet.readInt("receptionYards"));
+        g.setTotalTd(fieldSet.readInt("totalTd"));
+        return g;
+    }
+
+    private String symbol(String value) {
+        return symbols == null ? value : symbols.intern(value);
+    }
+}
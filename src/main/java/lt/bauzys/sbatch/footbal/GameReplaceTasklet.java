@@ -0,0 +1,89 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Deletes the games that earlier job instances loaded from the same {@code gameFile} and records the file
+ * under the running job instance in {@code game_load}, all in the tasklet's transaction, so loading a file
+ * again replaces its games instead of adding them a second time. A restart of the running job instance keeps
+ * the games it already committed.
+ * <p>
+ * With a {@code summaryWriter} the totals of the deleted games are first taken off the player summaries they
+ * were added to, and with {@code touchKeys} their (player_id, year) keys are recorded for the incremental
+ * summarization.
+ */
+public class GameReplaceTasklet implements Tasklet {
+
+    private static final Logger log = LoggerFactory.getLogger(GameReplaceTasklet.class);
+
+    private static final int SLICE_SIZE = 1000;
+
+    static final String TABLE = "game_load";
+
+    private static final String SELECT_PREVIOUS =
+            "SELECT job_instance_id FROM " + TABLE + " WHERE game_file = ? AND job_instance_id <> ?";
+    private static final String SELECT_NEGATED_TOTALS = "SELECT G.PLAYER_ID, G.YEAR, -SUM(G.COMPLETES), "
+            + "-SUM(G.ATTEMPTS), -SUM(G.PASSING_YARDS), -SUM(G.PASSING_TD), -SUM(G.INTERCEPTIONS), "
+            + "-SUM(G.RUSHES), -SUM(G.RUSH_YARDS), -SUM(G.RECEPTIONS), -SUM(G.RECEPTION_YARDS), "
+            + "-SUM(G.TOTAL_TD) FROM GAME G WHERE G.JOB_INSTANCE_ID = ? "
+            + "AND EXISTS (SELECT 1 FROM PLAYER WHERE PLAYER.PLAYER_ID = G.PLAYER_ID) "
+            + "AND EXISTS (SELECT 1 FROM PLAYER_SUMMARY S WHERE S.ID = G.PLAYER_ID AND S.YEAR_NO = G.YEAR) "
+            + "GROUP BY G.PLAYER_ID, G.YEAR";
+    private static final String TOUCH_KEYS = "INSERT IGNORE INTO " + TouchedKeysGameWriter.TOUCHED_TABLE
+            + " (job_instance_id, player_id, year_no) SELECT DISTINCT ?, player_id, year FROM game"
+            + " WHERE job_instance_id = ?";
+    private static final String DELETE_GAMES = "DELETE FROM game WHERE job_instance_id = ?";
+    private static final String DELETE_LOAD = "DELETE FROM " + TABLE + " WHERE job_instance_id = ?";
+    private static final String INSERT_LOAD =
+            "INSERT IGNORE INTO " + TABLE + " (job_instance_id, game_file) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String gameFile;
+    private final ItemWriter<PlayerSummary> summaryWriter;
+    private final boolean touchKeys;
+    private final PlayerSummaryRowMapper mapper = new PlayerSummaryRowMapper();
+
+    public GameReplaceTasklet(DataSource dataSource, String gameFile, ItemWriter<PlayerSummary> summaryWriter,
+                              boolean touchKeys) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.gameFile = gameFile;
+        this.summaryWriter = summaryWriter;
+        this.touchKeys = touchKeys;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        long jobInstanceId = chunkContext.getStepContext().getStepExecution().getJobExecution()
+                .getJobInstance().getInstanceId();
+        for (Long previous : jdbcTemplate.queryForList(SELECT_PREVIOUS, Long.class, gameFile, jobInstanceId)) {
+            if (summaryWriter != null) {
+                subtractTotals(previous);
+            }
+            if (touchKeys) {
+                jdbcTemplate.update(TOUCH_KEYS, jobInstanceId, previous);
+            }
+            int deleted = jdbcTemplate.update(DELETE_GAMES, previous);
+            jdbcTemplate.update(DELETE_LOAD, previous);
+            log.info("Deleted {} games that job instance {} loaded from {}", deleted, previous, gameFile);
+        }
+        jdbcTemplate.update(INSERT_LOAD, jobInstanceId, gameFile);
+        return RepeatStatus.FINISHED;
+    }
+
+    private void subtractTotals(long previous) throws Exception {
+        List<PlayerSummary> totals = jdbcTemplate.query(SELECT_NEGATED_TOTALS, mapper, previous);
+        for (int from = 0; from < totals.size(); from += SLICE_SIZE) {
+            summaryWriter.write(totals.subList(from, Math.min(from + SLICE_SIZE, totals.size())));
+        }
+    }
+}
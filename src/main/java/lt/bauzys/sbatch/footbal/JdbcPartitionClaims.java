@@ -0,0 +1,84 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Hands out partition step executions through the job repository tables. The manager saves the partitions
+ * as {@code STARTING}; a worker claims one by moving it to {@code STARTED} under the optimistic lock of the
+ * {@code VERSION} column, so exactly one worker wins. A partition whose worker went silent is put back to
+ * {@code STARTING} the same way, which also makes any late update from the old worker fail its version check.
+ */
+public class JdbcPartitionClaims {
+    private static final String DEFAULT_TABLE_PREFIX = "BATCH_";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String findClaimable;
+    private final String transition;
+
+    public JdbcPartitionClaims(DataSource dataSource) {
+        this(dataSource, DEFAULT_TABLE_PREFIX);
+    }
+
+    public JdbcPartitionClaims(DataSource dataSource, String tablePrefix) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.findClaimable = "SELECT s.JOB_EXECUTION_ID, s.STEP_EXECUTION_ID, s.VERSION FROM "
+                + tablePrefix + "STEP_EXECUTION s JOIN " + tablePrefix + "JOB_EXECUTION j"
+                + " ON j.JOB_EXECUTION_ID = s.JOB_EXECUTION_ID"
+                + " WHERE s.STEP_NAME LIKE ? AND s.STATUS = ? AND j.STATUS = ? ORDER BY s.STEP_EXECUTION_ID";
+        this.transition = "UPDATE " + tablePrefix + "STEP_EXECUTION"
+                + " SET STATUS = ?, LAST_UPDATED = ?, VERSION = VERSION + 1"
+                + " WHERE STEP_EXECUTION_ID = ? AND VERSION = ? AND STATUS = ?";
+    }
+
+    /**
+     * Unclaimed partitions of running jobs, named {@code workerStepName:partitionN}, oldest first.
+     */
+    public List<Candidate> findClaimable(String workerStepName) {
+        return jdbcTemplate.query(findClaimable,
+                (rs, rowNum) -> new Candidate(rs.getLong(1), rs.getLong(2), rs.getInt(3)),
+                workerStepName + ":%", BatchStatus.STARTING.name(), BatchStatus.STARTED.name());
+    }
+
+    public boolean claim(Candidate candidate) {
+        return jdbcTemplate.update(transition, BatchStatus.STARTED.name(), new Timestamp(System.currentTimeMillis()),
+                candidate.getStepExecutionId(), candidate.getVersion(), BatchStatus.STARTING.name()) == 1;
+    }
+
+    /**
+     * Offers a partition to other workers again, unless it changed since {@code stale} was read.
+     */
+    public boolean release(StepExecution stale) {
+        return jdbcTemplate.update(transition, BatchStatus.STARTING.name(), new Timestamp(System.currentTimeMillis()),
+                stale.getId(), stale.getVersion(), stale.getStatus().name()) == 1;
+    }
+
+    public static class Candidate {
+        private final long jobExecutionId;
+        private final long stepExecutionId;
+        private final int version;
+
+        Candidate(long jobExecutionId, long stepExecutionId, int version) {
+            this.jobExecutionId = jobExecutionId;
+            this.stepExecutionId = stepExecutionId;
+            this.version = version;
+        }
+
+        public long getJobExecutionId() {
+            return jobExecutionId;
+        }
+
+        public long getStepExecutionId() {
+            return stepExecutionId;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+    }
+}
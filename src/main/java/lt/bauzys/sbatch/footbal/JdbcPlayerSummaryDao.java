@@ -1,43 +1,255 @@
 package lt.bauzys.sbatch.footbal;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.batch.item.ItemWriter;
-import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 
 import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Writes player summaries as one JDBC batch per chunk. With {@code rowsPerStatement} above 1 the
+ * rows are folded into multi-row {@code VALUES} lists instead, which is what MySQL's
+ * {@code rewriteBatchedStatements} does on the driver side.
+ * The {@link WriteMode} decides what happens to a summary whose (id, year_no) key already exists.
+ */
 public class JdbcPlayerSummaryDao implements ItemWriter<PlayerSummary> {
-    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private static final Logger log = LoggerFactory.getLogger(JdbcPlayerSummaryDao.class);
+
+    private static final int COLUMNS = 12;
+    private static final int MAX_PLACEHOLDERS = 65535;
 
     private static final String INSERT_SUMMARY = "INSERT into player_summary(ID, YEAR_NO, COMPLETES, ATTEMPTS, PASSING_YARDS, PASSING_TD, "
             + "INTERCEPTIONS, RUSHES, RUSH_YARDS, RECEPTIONS, RECEPTION_YARDS, TOTAL_TD) "
             + "values(:id, :year, :completes, :attempts, :passingYards, :passingTd, "
             + ":interceptions, :rushes, :rushYards, :receptions, :receptionYards, :totalTd)";
 
+    private static final String INSERT_SUMMARY_ROWS = "INSERT into player_summary(ID, YEAR_NO, COMPLETES, ATTEMPTS, PASSING_YARDS, PASSING_TD, "
+            + "INTERCEPTIONS, RUSHES, RUSH_YARDS, RECEPTIONS, RECEPTION_YARDS, TOTAL_TD) values";
+
+    private static final String VALUES_ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String[] STAT_COLUMNS = {"COMPLETES", "ATTEMPTS", "PASSING_YARDS", "PASSING_TD",
+            "INTERCEPTIONS", "RUSHES", "RUSH_YARDS", "RECEPTIONS", "RECEPTION_YARDS", "TOTAL_TD"};
+
+    public enum WriteMode {
+        /** Plain insert, an existing key is an error. */
+        INSERT,
+        /** {@code ON DUPLICATE KEY UPDATE} replacing the stored totals. */
+        UPSERT,
+        /** {@code ON DUPLICATE KEY UPDATE} adding to the stored totals. */
+        ACCUMULATE
+    }
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final int rowsPerStatement;
+    private final String insertSummary;
+    private final String onDuplicateKey;
+
+    private final ThreadLocal<PlayerSummaryParameterSource[]> parameterSources =
+            ThreadLocal.withInitial(() -> new PlayerSummaryParameterSource[0]);
+    private final Map<Integer, String> multiRowStatements = new ConcurrentHashMap<>();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder statementsExecuted = new LongAdder();
+
     public JdbcPlayerSummaryDao(DataSource dataSource) {
+        this(dataSource, 1, WriteMode.INSERT);
+    }
+
+    public JdbcPlayerSummaryDao(DataSource dataSource, int rowsPerStatement, WriteMode writeMode) {
         this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.jdbcTemplate = namedParameterJdbcTemplate.getJdbcTemplate();
+        this.rowsPerStatement = Math.max(Math.min(rowsPerStatement, MAX_PLACEHOLDERS / COLUMNS), 1);
+        this.onDuplicateKey = onDuplicateKey(writeMode);
+        this.insertSummary = INSERT_SUMMARY + onDuplicateKey;
+    }
+
+    private static String onDuplicateKey(WriteMode writeMode) {
+        if (writeMode == WriteMode.INSERT) {
+            return "";
+        }
+        StringBuilder sql = new StringBuilder(" ON DUPLICATE KEY UPDATE ");
+        for (int i = 0; i < STAT_COLUMNS.length; i++) {
+            String column = STAT_COLUMNS[i];
+            sql.append(i == 0 ? "" : ", ").append(column).append(" = ");
+            if (writeMode == WriteMode.ACCUMULATE) {
+                sql.append(column).append(" + ");
+            }
+            sql.append("VALUES(").append(column).append(')');
+        }
+        return sql.toString();
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.sum();
+    }
+
+    public long getStatementsExecuted() {
+        return statementsExecuted.sum();
     }
 
     @Override
     public void write(List<? extends PlayerSummary> summaries) {
+        if (summaries.isEmpty()) {
+            return;
+        }
+        int statements = rowsPerStatement > 1 ? writeMultiRow(summaries) : writeBatch(summaries);
+        rowsWritten.add(summaries.size());
+        statementsExecuted.add(statements);
+        if (log.isDebugEnabled()) {
+            log.debug("Wrote {} player summaries in {} statements, {} rows per statement",
+                    summaries.size(), statements, String.format("%.1f", (double) summaries.size() / statements));
+        }
+    }
+
+    private int writeBatch(List<? extends PlayerSummary> summaries) {
+        PlayerSummaryParameterSource[] sources = parameterSources.get();
+        if (sources.length < summaries.size()) {
+            int oldLength = sources.length;
+            sources = Arrays.copyOf(sources, summaries.size());
+            for (int i = oldLength; i < sources.length; i++) {
+                sources[i] = new PlayerSummaryParameterSource();
+            }
+            parameterSources.set(sources);
+        }
+        for (int i = 0; i < summaries.size(); i++) {
+            sources[i].summary = summaries.get(i);
+        }
+        SqlParameterSource[] batch = sources.length == summaries.size()
+                ? sources : Arrays.copyOf(sources, summaries.size(), SqlParameterSource[].class);
+        try {
+            namedParameterJdbcTemplate.batchUpdate(insertSummary, batch);
+        } finally {
+            for (int i = 0; i < summaries.size(); i++) {
+                sources[i].summary = null;
+            }
+        }
+        return summaries.size();
+    }
+
+    private int writeMultiRow(List<? extends PlayerSummary> summaries) {
+        int fullStatements = summaries.size() / rowsPerStatement;
+        int remainder = summaries.size() % rowsPerStatement;
+        if (fullStatements > 0) {
+            jdbcTemplate.batchUpdate(multiRowStatement(rowsPerStatement), new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    setRows(ps, summaries, i * rowsPerStatement, rowsPerStatement);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return fullStatements;
+                }
+            });
+        }
+        if (remainder > 0) {
+            jdbcTemplate.update(multiRowStatement(remainder),
+                    ps -> setRows(ps, summaries, fullStatements * rowsPerStatement, remainder));
+        }
+        return fullStatements + (remainder > 0 ? 1 : 0);
+    }
+
+    private String multiRowStatement(int rows) {
+        return multiRowStatements.computeIfAbsent(rows, n -> {
+            StringBuilder sql = new StringBuilder(INSERT_SUMMARY_ROWS.length() + n * (VALUES_ROW.length() + 2))
+                    .append(INSERT_SUMMARY_ROWS).append(' ').append(VALUES_ROW);
+            for (int i = 1; i < n; i++) {
+                sql.append(", ").append(VALUES_ROW);
+            }
+            return sql.append(onDuplicateKey).toString();
+        });
+    }
+
+    private static void setRows(PreparedStatement ps, List<? extends PlayerSummary> summaries, int from, int rows)
+            throws SQLException {
+        int index = 1;
+        for (int i = from; i < from + rows; i++) {
+            PlayerSummary summary = summaries.get(i);
+            ps.setString(index, summary.getId());
+            ps.setInt(index + 1, summary.getYear());
+            ps.setInt(index + 2, summary.getCompletes());
+            ps.setInt(index + 3, summary.getAttempts());
+            ps.setInt(index + 4, summary.getPassingYards());
+            ps.setInt(index + 5, summary.getPassingTd());
+            ps.setInt(index + 6, summary.getInterceptions());
+            ps.setInt(index + 7, summary.getRushes());
+            ps.setInt(index + 8, summary.getRushYards());
+            ps.setInt(index + 9, summary.getReceptions());
+            ps.setInt(index + 10, summary.getReceptionYards());
+            ps.setInt(index + 11, summary.getTotalTd());
+            index += COLUMNS;
+        }
+    }
+
+    /**
+     * Parameter source over a single summary, pooled per thread and re-pointed for every chunk.
+     */
+    private static class PlayerSummaryParameterSource implements SqlParameterSource {
+        private PlayerSummary summary;
+
+        @Override
+        public boolean hasValue(String paramName) {
+            switch (paramName) {
+                case "id":
+                case "year":
+                case "completes":
+                case "attempts":
+                case "passingYards":
+                case "passingTd":
+                case "interceptions":
+                case "rushes":
+                case "rushYards":
+                case "receptions":
+                case "receptionYards":
+                case "totalTd":
+                    return true;
+                default:
+                    return false;
+            }
+        }
 
-        for (PlayerSummary summary : summaries) {
-            MapSqlParameterSource args = new MapSqlParameterSource()
-                    .addValue("id", summary.getId())
-                    .addValue("year", summary.getYear())
-                    .addValue("completes", summary.getCompletes())
-                    .addValue("attempts", summary.getAttempts())
-                    .addValue("passingYards", summary.getPassingYards())
-                    .addValue("passingTd", summary.getPassingTd())
-                    .addValue("interceptions", summary.getInterceptions())
-                    .addValue("rushes", summary.getRushes())
-                    .addValue("rushYards", summary.getRushYards())
-                    .addValue("receptions", summary.getReceptions())
-                    .addValue("receptionYards", summary.getReceptionYards())
-                    .addValue("totalTd", summary.getTotalTd());
-
-            namedParameterJdbcTemplate.update(INSERT_SUMMARY, args);
+        @Override
+        public Object getValue(String paramName) {
+            switch (paramName) {
+                case "id":
+                    return summary.getId();
+                case "year":
+                    return summary.getYear();
+                case "completes":
+                    return summary.getCompletes();
+                case "attempts":
+                    return summary.getAttempts();
+                case "passingYards":
+                    return summary.getPassingYards();
+                case "passingTd":
+                    return summary.getPassingTd();
+                case "interceptions":
+                    return summary.getInterceptions();
+                case "rushes":
+                    return summary.getRushes();
+                case "rushYards":
+                    return summary.getRushYards();
+                case "receptions":
+                    return summary.getReceptions();
+                case "receptionYards":
+                    return summary.getReceptionYards();
+                case "totalTd":
+                    return summary.getTotalTd();
+                default:
+                    throw new IllegalArgumentException("No value for parameter " + paramName);
+            }
         }
     }
 }
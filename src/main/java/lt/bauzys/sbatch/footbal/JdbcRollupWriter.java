@@ -0,0 +1,106 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Writes the rollups of one level as one JDBC batch per chunk, replacing the stored totals of existing keys.
+ * {@link Rollup.Level#PLAYER_YEAR} is the player_summary table, written by {@link JdbcPlayerSummaryDao}.
+ */
+public class JdbcRollupWriter implements ItemWriter<Rollup> {
+    private final JdbcTemplate jdbcTemplate;
+    private final Rollup.Level level;
+    private final String sql;
+
+    public JdbcRollupWriter(DataSource dataSource, Rollup.Level level) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.level = level;
+        this.sql = upsert(table(level), keyColumns(level));
+    }
+
+    private static String table(Rollup.Level level) {
+        switch (level) {
+            case PLAYER_YEAR_TEAM:
+                return "player_team_summary";
+            case PLAYER_CAREER:
+                return "player_career_summary";
+            case TEAM_YEAR:
+                return "team_summary";
+            default:
+                throw new IllegalArgumentException("No rollup table for " + level);
+        }
+    }
+
+    /**
+     * Key columns, followed by the first and last year of a career.
+     */
+    private static String[] keyColumns(Rollup.Level level) {
+        switch (level) {
+            case PLAYER_YEAR_TEAM:
+                return new String[]{"player_id", "year_no", "team"};
+            case PLAYER_CAREER:
+                return new String[]{"player_id", "first_year", "last_year"};
+            default:
+                return new String[]{"team", "year_no"};
+        }
+    }
+
+    private static String upsert(String table, String[] keyColumns) {
+        StringBuilder columns = new StringBuilder(String.join(", ", keyColumns)).append(", games");
+        StringBuilder update = new StringBuilder(" ON DUPLICATE KEY UPDATE games = VALUES(games)");
+        if (keyColumns[1].equals("first_year")) {
+            update.append(", first_year = VALUES(first_year), last_year = VALUES(last_year)");
+        }
+        for (String stat : Rollup.STAT_COLUMNS) {
+            columns.append(", ").append(stat);
+            update.append(", ").append(stat).append(" = VALUES(").append(stat).append(')');
+        }
+        StringBuilder values = new StringBuilder("?");
+        for (int i = 1; i < keyColumns.length + 1 + Rollup.STAT_COLUMNS.length; i++) {
+            values.append(", ?");
+        }
+        return "INSERT INTO " + table + " (" + columns + ") VALUES (" + values + ")" + update;
+    }
+
+    @Override
+    public void write(List<? extends Rollup> rollups) {
+        if (!rollups.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rollups, rollups.size(), this::setValues);
+        }
+    }
+
+    private void setValues(PreparedStatement ps, Rollup rollup) throws SQLException {
+        int index = 1;
+        switch (level) {
+            case PLAYER_YEAR_TEAM:
+                ps.setString(index++, rollup.getPlayerId());
+                ps.setInt(index++, rollup.getYear());
+                ps.setString(index++, team(rollup));
+                break;
+            case PLAYER_CAREER:
+                ps.setString(index++, rollup.getPlayerId());
+                ps.setInt(index++, rollup.getFirstYear());
+                ps.setInt(index++, rollup.getLastYear());
+                break;
+            default:
+                ps.setString(index++, team(rollup));
+                ps.setInt(index++, rollup.getYear());
+        }
+        ps.setInt(index++, rollup.getGames());
+        for (int i = 0; i < Rollup.STAT_COLUMNS.length; i++) {
+            ps.setInt(index++, rollup.getStat(i));
+        }
+    }
+
+    /**
+     * The team is part of the key, games without one are filed under the empty name.
+     */
+    private static String team(Rollup rollup) {
+        return rollup.getTeam() == null ? "" : rollup.getTeam();
+    }
+}
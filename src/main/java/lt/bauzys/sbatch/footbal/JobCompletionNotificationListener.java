@@ -1,25 +1,89 @@
 package lt.bauzys.sbatch.footbal;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.batch.core.BatchStatus;
 import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.listener.JobExecutionListenerSupport;
 import org.springframework.stereotype.Component;
 
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs a compact performance report when the job ends: one line per step with counts, duration,
+ * throughput and the chunk read/write/commit latencies, then the connection pool wait time.
+ */
 @Component
 public class JobCompletionNotificationListener extends JobExecutionListenerSupport {
 
     private static final Logger log = LoggerFactory.getLogger(JobCompletionNotificationListener.class);
 
+    private final StepMetricsListener stepMetricsListener;
+    private final MeterRegistry meterRegistry;
+
+    public JobCompletionNotificationListener(StepMetricsListener stepMetricsListener, MeterRegistry meterRegistry) {
+        this.stepMetricsListener = stepMetricsListener;
+        this.meterRegistry = meterRegistry;
+    }
+
     @Override
     public void beforeJob(JobExecution jobExecution) {
     }
 
     @Override
     public void afterJob(JobExecution jobExecution) {
-        if(jobExecution.getStatus() == BatchStatus.COMPLETED) {
-            log.info("!!! JOB FINISHED! Time to verify the results");
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "%s %s in %d ms", jobExecution.getJobInstance().getJobName(),
+                jobExecution.getStatus(), millis(jobExecution.getStartTime(), jobExecution.getEndTime())));
+        for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+            long millis = millis(stepExecution.getStartTime(), stepExecution.getEndTime());
+            report.append(String.format(Locale.ROOT, "%n  %-32s %-9s read %9d  written %9d  %8d ms  %9.0f items/s",
+                    stepExecution.getStepName(), stepExecution.getStatus(), stepExecution.getReadCount(),
+                    stepExecution.getWriteCount(), millis,
+                    millis == 0 ? 0.0 : stepExecution.getWriteCount() * 1000.0 / millis));
+            if (stepExecution.getFilterCount() > 0) {
+                report.append(String.format(Locale.ROOT, "  filtered %d", stepExecution.getFilterCount()));
+            }
+            if (stepExecution.getSkipCount() > 0) {
+                report.append(String.format(Locale.ROOT, "  rejected %d", stepExecution.getSkipCount()));
+            }
+            StepMetricsListener.StepTimings timings = stepMetricsListener.getTimings(stepExecution);
+            if (timings != null && timings.getRead().getCount() > 0) {
+                report.append(String.format(Locale.ROOT,
+                        "%n  %-32s %6d chunks, avg/max ms: read %.1f/%.1f  write %.1f/%.1f  commit %.1f/%.1f", "",
+                        timings.getRead().getCount(),
+                        timings.getRead().getMeanMillis(), timings.getRead().getMaxMillis(),
+                        timings.getWrite().getMeanMillis(), timings.getWrite().getMaxMillis(),
+                        timings.getCommit().getMeanMillis(), timings.getCommit().getMaxMillis()));
+            }
+            stepMetricsListener.remove(stepExecution);
+        }
+        Timer repositoryUpdates = meterRegistry.find("football.repository.step.update").timer();
+        Counter deferredUpdates = meterRegistry.find("football.repository.step.updates")
+                .tag("result", "deferred").counter();
+        if (repositoryUpdates != null && repositoryUpdates.count() > 0) {
+            report.append(String.format(Locale.ROOT,
+                    "%n  job repository: %d step writes in %.0f ms, %.0f chunk updates deferred",
+                    repositoryUpdates.count(), repositoryUpdates.totalTime(TimeUnit.MILLISECONDS),
+                    deferredUpdates == null ? 0.0 : deferredUpdates.count()));
+        }
+        Timer poolWait = meterRegistry.find("hikaricp.connections.acquire").timer();
+        if (poolWait != null && poolWait.count() > 0) {
+            report.append(String.format(Locale.ROOT, "%n  connection pool wait: %d acquires, avg %.2f ms, max %.2f ms",
+                    poolWait.count(), poolWait.mean(TimeUnit.MILLISECONDS), poolWait.max(TimeUnit.MILLISECONDS)));
+        }
+        log.info("{}", report);
+    }
+
+    private static long millis(Date start, Date end) {
+        if (start == null || end == null) {
+            return 0;
         }
+        return end.getTime() - start.getTime();
     }
 }
@@ -0,0 +1,98 @@
+package lt.bauzys.sbatch.footbal;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.batch.core.configuration.annotation.BatchConfigurer;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.explore.support.MapJobExplorerFactoryBean;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.MapJobRepositoryFactoryBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.batch.BasicBatchConfigurer;
+import org.springframework.boot.autoconfigure.batch.BatchProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Job repository selected by {@code job.repository.mode}:
+ * <ul>
+ * <li>{@code jdbc}, the default, writes every chunk's step execution update to the database tables;</li>
+ * <li>{@code buffered} keeps the database tables but writes step updates only every
+ * {@code job.repository.flush.chunks} chunks or {@code job.repository.flush.ms}, see
+ * {@link BufferingJobRepository};</li>
+ * <li>{@code memory} keeps all job metadata in memory, nothing survives the process.</li>
+ * </ul>
+ * Only {@code jdbc} keeps the job restartable. Step update counts and times are published in every mode.
+ */
+@Configuration
+public class JobRepositoryConfiguration {
+    public static final String JDBC = "jdbc";
+    public static final String BUFFERED = "buffered";
+    public static final String MEMORY = "memory";
+
+    @Value("${job.repository.mode:" + JDBC + "}")
+    private String mode;
+    @Value("${job.repository.flush.chunks:10}")
+    private int flushChunks;
+    @Value("${job.repository.flush.ms:1000}")
+    private long flushMillis;
+    @Value("${summary.partition.remote:false}")
+    private boolean remoteSummaries;
+    @Value("${summary.worker.enabled:false}")
+    private boolean summaryWorker;
+
+    @Bean
+    public BatchConfigurer batchConfigurer(BatchProperties properties, DataSource dataSource,
+                                           ObjectProvider<TransactionManagerCustomizers> customizers,
+                                           MeterRegistry meterRegistry) {
+        if (!JDBC.equals(mode) && !BUFFERED.equals(mode) && !MEMORY.equals(mode)) {
+            throw new IllegalStateException("Unknown job.repository.mode " + mode + ", expected "
+                    + JDBC + ", " + BUFFERED + " or " + MEMORY);
+        }
+        if (MEMORY.equals(mode) && (remoteSummaries || summaryWorker)) {
+            throw new IllegalStateException("Remote summarization shares step executions through the database,"
+                    + " it needs job.repository.mode " + JDBC + " or " + BUFFERED);
+        }
+        return new RepositoryModeBatchConfigurer(properties, dataSource, customizers.getIfAvailable(),
+                meterRegistry);
+    }
+
+    private class RepositoryModeBatchConfigurer extends BasicBatchConfigurer {
+        private final MeterRegistry meterRegistry;
+        private MapJobRepositoryFactoryBean mapRepositoryFactory;
+
+        private RepositoryModeBatchConfigurer(BatchProperties properties, DataSource dataSource,
+                                              TransactionManagerCustomizers customizers,
+                                              MeterRegistry meterRegistry) {
+            super(properties, dataSource, customizers);
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        protected JobRepository createJobRepository() throws Exception {
+            JobRepository repository;
+            if (MEMORY.equals(mode)) {
+                mapRepositoryFactory = new MapJobRepositoryFactoryBean(getTransactionManager());
+                mapRepositoryFactory.afterPropertiesSet();
+                repository = mapRepositoryFactory.getObject();
+            } else {
+                repository = super.createJobRepository();
+            }
+            return new BufferingJobRepository(repository, BUFFERED.equals(mode) ? flushChunks : 1,
+                    flushMillis, meterRegistry);
+        }
+
+        @Override
+        protected JobExplorer createJobExplorer() throws Exception {
+            if (mapRepositoryFactory == null) {
+                return super.createJobExplorer();
+            }
+            MapJobExplorerFactoryBean explorerFactory = new MapJobExplorerFactoryBean(mapRepositoryFactory);
+            explorerFactory.afterPropertiesSet();
+            return explorerFactory.getObject();
+        }
+    }
+}
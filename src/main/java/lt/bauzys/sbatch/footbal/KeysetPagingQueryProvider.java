@@ -0,0 +1,79 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.batch.item.database.Order;
+import org.springframework.batch.item.database.support.AbstractSqlPagingQueryProvider;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Paging queries that continue after the last row of the previous page with a row value comparison,
+ * {@code WHERE (player_id, year) > (:_player_id, :_year)}, placed before {@code GROUP BY} so the
+ * database seeks the primary key instead of aggregating everything and discarding what was read.
+ * The stock MySQL provider wraps grouped queries into a derived table, which re-aggregates the whole
+ * table for every page. Sort keys must be ascending and name columns of the grouped table.
+ */
+public class KeysetPagingQueryProvider extends AbstractSqlPagingQueryProvider {
+
+    @Override
+    public void init(DataSource dataSource) throws Exception {
+        super.init(dataSource);
+        for (Map.Entry<String, Order> sortKey : getSortKeys().entrySet()) {
+            if (sortKey.getValue() != Order.ASCENDING) {
+                throw new IllegalArgumentException("Sort key " + sortKey.getKey() + " must be ascending");
+            }
+        }
+    }
+
+    /**
+     * Always named, the reader binds the last key of a page as {@code :_<sort key>}.
+     */
+    @Override
+    public boolean isUsingNamedParameters() {
+        return true;
+    }
+
+    @Override
+    public String generateFirstPageQuery(int pageSize) {
+        return query(getWhereClause(), pageSize);
+    }
+
+    @Override
+    public String generateRemainingPagesQuery(int pageSize) {
+        String keys = String.join(", ", getSortKeys().keySet());
+        String lastKeys = getSortKeys().keySet().stream().map(key -> ":_" + key).collect(Collectors.joining(", "));
+        String first = getSortKeys().keySet().iterator().next();
+        // the leading >= gives the optimizer an index range even where it does not use row comparisons for one
+        String keyset = first + " >= :_" + first + " AND (" + keys + ") > (" + lastKeys + ")";
+        return query(getWhereClause() == null ? keyset : "(" + getWhereClause() + ") AND " + keyset, pageSize);
+    }
+
+    @Override
+    public String generateJumpToItemQuery(int itemIndex, int pageSize) {
+        int page = itemIndex / pageSize;
+        int offset = Math.max(page * pageSize - 1, 0);
+        StringBuilder sql = new StringBuilder("SELECT ")
+                .append(String.join(", ", getSortKeys().keySet()))
+                .append(" FROM ").append(getFromClause());
+        appendRest(sql, getWhereClause());
+        return sql.append(" LIMIT ").append(offset).append(", 1").toString();
+    }
+
+    private String query(String where, int pageSize) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(getSelectClause())
+                .append(" FROM ").append(getFromClause());
+        appendRest(sql, where);
+        return sql.append(" LIMIT ").append(pageSize).toString();
+    }
+
+    private void appendRest(StringBuilder sql, String where) {
+        if (where != null) {
+            sql.append(" WHERE ").append(where);
+        }
+        if (getGroupClause() != null) {
+            sql.append(" GROUP BY ").append(getGroupClause());
+        }
+        sql.append(" ORDER BY ").append(String.join(", ", getSortKeys().keySet()));
+    }
+}
@@ -0,0 +1,144 @@
+package lt.bauzys.sbatch.footbal;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * The {@code size} best players of every season in every {@link Stat}, collected in one pass over the
+ * summaries. Each (year, stat) keeps a min-heap of at most {@code size} entries, so a summary costs
+ * {@code O(log size)} per stat and memory does not grow with the number of players.
+ * Higher values rank first, equal values by player id; zero values are not ranked.
+ */
+public class Leaderboard {
+
+    public enum Stat {
+        COMPLETES(PlayerSummary::getCompletes),
+        ATTEMPTS(PlayerSummary::getAttempts),
+        PASSING_YARDS(PlayerSummary::getPassingYards),
+        PASSING_TD(PlayerSummary::getPassingTd),
+        INTERCEPTIONS(PlayerSummary::getInterceptions),
+        RUSHES(PlayerSummary::getRushes),
+        RUSH_YARDS(PlayerSummary::getRushYards),
+        RECEPTIONS(PlayerSummary::getReceptions),
+        RECEPTION_YARDS(PlayerSummary::getReceptionYards),
+        TOTAL_TD(PlayerSummary::getTotalTd);
+
+        private final ToIntFunction<PlayerSummary> value;
+
+        Stat(ToIntFunction<PlayerSummary> value) {
+            this.value = value;
+        }
+
+        public String column() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Worst first, the head of a heap is the entry to replace.
+     */
+    private static final Comparator<Entry> WORST_FIRST = Comparator.comparingInt(Entry::getValue)
+            .thenComparing(Entry::getPlayerId, Comparator.reverseOrder());
+
+    private static final Stat[] STATS = Stat.values();
+
+    private final int size;
+    private final Map<Integer, List<PriorityQueue<Entry>>> seasons = new TreeMap<>();
+
+    public Leaderboard(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Leaderboard size must be at least 1, was " + size);
+        }
+        this.size = size;
+    }
+
+    public void add(PlayerSummary summary) {
+        List<PriorityQueue<Entry>> heaps = seasons.computeIfAbsent(summary.getYear(), year -> {
+            List<PriorityQueue<Entry>> stats = new ArrayList<>();
+            for (int i = 0; i < STATS.length; i++) {
+                stats.add(new PriorityQueue<>(size + 1, WORST_FIRST));
+            }
+            return stats;
+        });
+        for (Stat stat : STATS) {
+            int value = stat.value.applyAsInt(summary);
+            if (value <= 0) {
+                continue;
+            }
+            PriorityQueue<Entry> heap = heaps.get(stat.ordinal());
+            if (heap.size() < size) {
+                heap.add(new Entry(summary.getYear(), stat, summary.getId(), value));
+            } else if (value >= heap.peek().value) {
+                Entry entry = new Entry(summary.getYear(), stat, summary.getId(), value);
+                if (WORST_FIRST.compare(entry, heap.peek()) > 0) {
+                    heap.poll();
+                    heap.add(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * All ranked entries by year, stat and rank, ranks starting at 1.
+     */
+    public List<Entry> entries() {
+        List<Entry> entries = new ArrayList<>();
+        for (List<PriorityQueue<Entry>> heaps : seasons.values()) {
+            for (PriorityQueue<Entry> heap : heaps) {
+                List<Entry> ranked = new ArrayList<>(heap);
+                ranked.sort(WORST_FIRST.reversed());
+                for (int i = 0; i < ranked.size(); i++) {
+                    ranked.get(i).rank = i + 1;
+                }
+                entries.addAll(ranked);
+            }
+        }
+        return entries;
+    }
+
+    public static class Entry {
+        private final int year;
+        private final Stat stat;
+        private final String playerId;
+        private final int value;
+        private int rank;
+
+        Entry(int year, Stat stat, String playerId, int value) {
+            this.year = year;
+            this.stat = stat;
+            this.playerId = playerId;
+            this.value = value;
+        }
+
+        public int getYear() {
+            return year;
+        }
+
+        public Stat getStat() {
+            return stat;
+        }
+
+        public String getPlayerId() {
+            return playerId;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        public int getRank() {
+            return rank;
+        }
+
+        @Override
+        public String toString() {
+            return year + " " + stat + " #" + rank + " " + playerId + " " + value;
+        }
+    }
+}
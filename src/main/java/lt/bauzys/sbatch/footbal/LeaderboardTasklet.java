@@ -0,0 +1,60 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Streams the player_summary table once through a {@link Leaderboard} and replaces the leaderboard table
+ * with the result in one batched write, all in the tasklet's transaction. A restart simply runs it again.
+ */
+public class LeaderboardTasklet implements Tasklet {
+    private static final Logger log = LoggerFactory.getLogger(LeaderboardTasklet.class);
+
+    private static final String SELECT_SUMMARIES = "SELECT id, year_no, completes, attempts, passing_yards,"
+            + " passing_td, interceptions, rushes, rush_yards, receptions, reception_yards, total_td"
+            + " FROM player_summary";
+    private static final String INSERT_ENTRY =
+            "INSERT INTO leaderboard (year_no, stat, rank_no, player_id, stat_value) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int size;
+
+    public LeaderboardTasklet(DataSource dataSource, int size, int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.size = size;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) {
+        Leaderboard leaderboard = new Leaderboard(size);
+        PlayerSummaryRowMapper mapper = new PlayerSummaryRowMapper();
+        jdbcTemplate.query(SELECT_SUMMARIES, (RowCallbackHandler) rs -> {
+            leaderboard.add(mapper.mapRow(rs, 0));
+            contribution.incrementReadCount();
+        });
+
+        List<Leaderboard.Entry> entries = leaderboard.entries();
+        jdbcTemplate.update("DELETE FROM leaderboard");
+        jdbcTemplate.batchUpdate(INSERT_ENTRY, entries, entries.size(), (ps, entry) -> {
+            ps.setInt(1, entry.getYear());
+            ps.setString(2, entry.getStat().column());
+            ps.setInt(3, entry.getRank());
+            ps.setString(4, entry.getPlayerId());
+            ps.setInt(5, entry.getValue());
+        });
+        contribution.incrementWriteCount(entries.size());
+        log.info("Ranked {} player summaries into {} leaderboard entries", contribution.getReadCount(),
+                entries.size());
+        return RepeatStatus.FINISHED;
+    }
+}
@@ -0,0 +1,86 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.core.io.Resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Splits a file into {@code gridSize} byte ranges whose boundaries fall on line starts.
+ * Each partition gets {@code startOffset} (inclusive) and {@code endOffset} (exclusive).
+ * Resources that are not plain files end up in a single partition without offsets.
+ */
+public class LineAlignedFilePartitioner implements Partitioner {
+    public static final String START_OFFSET = "startOffset";
+    public static final String END_OFFSET = "endOffset";
+
+    private static final int SCAN_BUFFER_SIZE = 8192;
+
+    private final Resource resource;
+
+    public LineAlignedFilePartitioner(Resource resource) {
+        this.resource = resource;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        Map<String, ExecutionContext> partitions = new HashMap<>();
+        if (!resource.isFile()) {
+            partitions.put("partition0", new ExecutionContext());
+            return partitions;
+        }
+        try {
+            File file = resource.getFile();
+            long size = file.length();
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long start = 0;
+                for (int i = 1; i <= gridSize && start < size; i++) {
+                    long end = i == gridSize ? size : nextLineStart(channel, size * i / gridSize, size);
+                    if (end > start) {
+                        ExecutionContext context = new ExecutionContext();
+                        context.putLong(START_OFFSET, start);
+                        context.putLong(END_OFFSET, end);
+                        partitions.put("partition" + partitions.size(), context);
+                        start = end;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to partition " + resource.getDescription(), e);
+        }
+        if (partitions.isEmpty()) {
+            partitions.put("partition0", new ExecutionContext());
+        }
+        return partitions;
+    }
+
+    private long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        if (position <= 0) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long offset = position - 1;
+        while (offset < size) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+}
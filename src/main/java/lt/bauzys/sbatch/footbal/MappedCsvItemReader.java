@@ -0,0 +1,296 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Comma delimited file reader that memory maps the file and scans fields directly on bytes.
+ * Numeric columns are parsed without intermediate Strings, quoting is not supported. As with
+ * {@code DelimitedLineTokenizer} and {@code DefaultFieldSet}, fields are trimmed and a line with more fields than
+ * {@link #mapLine()} consumes is refused.
+ * The byte offset of the next line is saved as restart state, so a restart seeks instead of re-reading.
+ * An optional {@code [startOffset, endOffset)} range restricts the reader to one partition.
+ */
+public abstract class MappedCsvItemReader<T> extends ItemStreamSupport implements ItemStreamReader<T> {
+    private static final String OFFSET = "byte.offset";
+    private static final String LINE_NUMBER = "line.number";
+    private static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final Resource resource;
+    private final long startOffset;
+    private final long endOffset;
+    private int windowSize = DEFAULT_WINDOW_SIZE;
+    private SymbolTable.ByteCache symbols;
+
+    private FileChannel channel;
+    private long limit;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long windowEnd;
+
+    private long position;
+    private int lineNumber;
+    private int lineStart;
+    private int lineEnd;
+    private int fieldStart;
+    private int fieldEnd;
+    private byte[] scratch = new byte[64];
+
+    protected MappedCsvItemReader(String name, Resource resource) {
+        this(name, resource, 0, -1);
+    }
+
+    protected MappedCsvItemReader(String name, Resource resource, long startOffset, long endOffset) {
+        setName(name);
+        this.resource = resource;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+    }
+
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Resolves {@link #nextSymbol()} fields through {@code symbolTable} instead of creating a String per field.
+     */
+    public void setSymbolTable(SymbolTable symbolTable) {
+        this.symbols = symbolTable == null ? null : symbolTable.byteCache();
+    }
+
+    /**
+     * Maps the current line, whose fields are consumed in order with the {@code next*} methods. Every field of
+     * the line must be consumed.
+     */
+    protected abstract T mapLine();
+
+    @Override
+    public void open(ExecutionContext executionContext) {
+        try {
+            channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ);
+            long size = channel.size();
+            limit = endOffset < 0 ? size : Math.min(endOffset, size);
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to open " + resource.getDescription(), e);
+        }
+        position = executionContext.getLong(getExecutionContextKey(OFFSET), startOffset);
+        lineNumber = executionContext.getInt(getExecutionContextKey(LINE_NUMBER), 0);
+        window = null;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+        executionContext.putLong(getExecutionContextKey(OFFSET), position);
+        executionContext.putInt(getExecutionContextKey(LINE_NUMBER), lineNumber);
+    }
+
+    @Override
+    public void close() {
+        window = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new ItemStreamException("Failed to close " + resource.getDescription(), e);
+            } finally {
+                channel = null;
+            }
+        }
+    }
+
+    @Override
+    public T read() throws IOException {
+        while (nextLine()) {
+            if (lineEnd > lineStart) {
+                T item = mapLine();
+                if (fieldEnd < lineEnd) {
+                    throw parseError("Incorrect number of tokens found in record: expected " + fieldIndex()
+                            + " actual " + fieldCount());
+                }
+                return item;
+            }
+        }
+        return null;
+    }
+
+    private boolean nextLine() throws IOException {
+        if (position >= limit) {
+            return false;
+        }
+        if (window == null || position < windowStart || position >= windowEnd) {
+            map(position);
+        }
+        int newline = indexOfNewline((int) (position - windowStart));
+        if (newline < 0 && windowEnd < limit) {
+            map(position);
+            newline = indexOfNewline(0);
+            if (newline < 0 && windowEnd < limit) {
+                throw new FlatFileParseException("Line longer than mapping window at byte " + position, "",
+                        lineNumber + 1);
+            }
+        }
+        lineStart = (int) (position - windowStart);
+        lineEnd = newline < 0 ? (int) (windowEnd - windowStart) : newline;
+        position = windowStart + lineEnd + (newline < 0 ? 0 : 1);
+        if (lineEnd > lineStart && window.get(lineEnd - 1) == '\r') {
+            lineEnd--;
+        }
+        lineNumber++;
+        fieldStart = -1;
+        fieldEnd = lineStart - 1;
+        return true;
+    }
+
+    private void map(long from) throws IOException {
+        long length = Math.min(windowSize, limit - from);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+        windowStart = from;
+        windowEnd = from + length;
+    }
+
+    private int indexOfNewline(int from) {
+        int end = (int) (windowEnd - windowStart);
+        for (int i = from; i < end; i++) {
+            if (window.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void nextField() {
+        if (fieldEnd >= lineEnd) {
+            throw parseError("Missing field " + fieldIndex());
+        }
+        fieldStart = fieldEnd + 1;
+        int i = fieldStart;
+        while (i < lineEnd && window.get(i) != ',') {
+            i++;
+        }
+        fieldEnd = i;
+    }
+
+    private int fieldCount() {
+        int count = 1;
+        for (int i = lineStart; i < lineEnd; i++) {
+            if (window.get(i) == ',') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int trimmedStart() {
+        int i = fieldStart;
+        while (i < fieldEnd && (window.get(i) & 0xff) <= ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private int trimmedEnd(int start) {
+        int end = fieldEnd;
+        while (end > start && (window.get(end - 1) & 0xff) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private int fieldIndex() {
+        int count = 0;
+        for (int i = lineStart; i < fieldEnd && i < lineEnd; i++) {
+            if (window.get(i) == ',') {
+                count++;
+            }
+        }
+        return count + 1;
+    }
+
+    protected String nextString() {
+        nextField();
+        int start = trimmedStart();
+        int length = trimmedEnd(start) - start;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = window.get(start + i);
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Like {@link #nextString()}, for low-cardinality fields that go through the symbol table when one is set.
+     */
+    protected String nextSymbol() {
+        if (symbols == null) {
+            return nextString();
+        }
+        nextField();
+        int start = trimmedStart();
+        return symbols.lookup(window, start, trimmedEnd(start));
+    }
+
+    protected int nextInt() {
+        nextField();
+        return parseInt(false, 0);
+    }
+
+    protected int nextInt(int defaultValue) {
+        nextField();
+        return parseInt(true, defaultValue);
+    }
+
+    private int parseInt(boolean hasDefault, int defaultValue) {
+        int i = trimmedStart();
+        int end = trimmedEnd(i);
+        if (i == end) {
+            if (hasDefault) {
+                return defaultValue;
+            }
+            throw parseError("Empty numeric field " + fieldIndex());
+        }
+        boolean negative = false;
+        byte first = window.get(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+        if (i == end || end - i > 10) {
+            throw parseError("Unparseable number in field " + fieldIndex());
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = window.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw parseError("Unparseable number in field " + fieldIndex());
+            }
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw parseError("Number out of range in field " + fieldIndex());
+        }
+        return (int) value;
+    }
+
+    private FlatFileParseException parseError(String message) {
+        byte[] line = new byte[lineEnd - lineStart];
+        for (int i = 0; i < line.length; i++) {
+            line[i] = window.get(lineStart + i);
+        }
+        String input = new String(line, StandardCharsets.UTF_8);
+        return new FlatFileParseException(message + " at line " + lineNumber + " in " + resource.getDescription()
+                + ", input=[" + input + "]", input, lineNumber);
+    }
+}
@@ -0,0 +1,35 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.core.io.Resource;
+
+public class MappedGameItemReader extends MappedCsvItemReader<Game> {
+
+    public MappedGameItemReader(Resource resource) {
+        super("mappedGameItemReader", resource);
+    }
+
+    public MappedGameItemReader(Resource resource, long startOffset, long endOffset) {
+        super("mappedGameItemReader", resource, startOffset, endOffset);
+    }
+
+    @Override
+    protected Game mapLine() {
+        Game g = new Game();
+        g.setId(nextSymbol());
+        g.setYear(nextInt());
+        g.setTeam(nextSymbol());
+        g.setWeek(nextInt());
+        g.setOpponent(nextSymbol());
+        g.setCompletes(nextInt());
+        g.setAttempts(nextInt());
+        g.setPassingYards(nextInt());
+        g.setPassingTd(nextInt());
+        g.setInterceptions(nextInt());
+        g.setRushes(nextInt());
+        g.setRushYards(nextInt());
+        g.setReceptions(nextInt(0));
+        g.setReceptionYards(nextInt());
+        g.setTotalTd(nextInt());
+        return g;
+    }
+}
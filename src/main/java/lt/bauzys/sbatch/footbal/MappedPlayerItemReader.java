@@ -0,0 +1,22 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.core.io.Resource;
+
+public class MappedPlayerItemReader extends MappedCsvItemReader<Player> {
+
+    public MappedPlayerItemReader(Resource resource) {
+        super("mappedPlayerItemReader", resource);
+    }
+
+    @Override
+    protected Player mapLine() {
+        Player p = new Player();
+        p.setId(nextSymbol());
+        p.setLastName(nextString());
+        p.setFirstName(nextString());
+        p.setPosition(nextString());
+        p.setBirthYear(nextInt());
+        p.setDebutYear(nextInt());
+        return p;
+    }
+}
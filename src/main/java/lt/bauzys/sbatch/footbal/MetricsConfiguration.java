@@ -0,0 +1,73 @@
+package lt.bauzys.sbatch.footbal;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Micrometer registry for the job's own meters, Spring Batch's built-in {@code spring.batch.*} meters
+ * and the Hikari pool's {@code hikaricp.connections.acquire} wait timer.
+ * The registry is joined to {@link Metrics#globalRegistry}, which is where Spring Batch publishes.
+ */
+@Configuration
+public class MetricsConfiguration implements DisposableBean {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Bean
+    public MeterRegistry meterRegistry() {
+        Metrics.addRegistry(meterRegistry);
+        return meterRegistry;
+    }
+
+    @Bean
+    public StepMetricsListener stepMetricsListener(MeterRegistry meterRegistry) {
+        return new StepMetricsListener(meterRegistry);
+    }
+
+    /**
+     * Hikari only accepts a metrics tracker before the pool starts, so this runs ahead of the
+     * datasource initializer.
+     */
+    @Bean
+    public static BeanPostProcessor hikariMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new HikariMetricsPostProcessor(meterRegistry);
+    }
+
+    @Override
+    public void destroy() {
+        Metrics.removeRegistry(meterRegistry);
+        meterRegistry.close();
+    }
+
+    private static class HikariMetricsPostProcessor implements BeanPostProcessor, Ordered {
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+
+        private HikariMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public Object postProcessBeforeInitialization(Object bean, String beanName) {
+            if (bean instanceof HikariDataSource) {
+                HikariDataSource dataSource = (HikariDataSource) bean;
+                if (dataSource.getMetricRegistry() == null && dataSource.getMetricsTrackerFactory() == null) {
+                    dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry.getObject()));
+                }
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
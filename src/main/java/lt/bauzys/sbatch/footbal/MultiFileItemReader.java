@@ -0,0 +1,126 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Reads files one after the other, each through a new reader from {@code readers}. The URLs of the files read
+ * to the end are saved together with the URL and reader state of the current file, so a restart skips the
+ * finished files by name and continues the current one where its reader left off, before the files still
+ * waiting. Files that appeared between the failure and the restart are read too, wherever they sort.
+ */
+public class MultiFileItemReader<T> extends ItemStreamSupport implements ItemStreamReader<T> {
+    private static final String FILES_READ = "files.read";
+    private static final String FILE_CURRENT = "file.current";
+
+    private static final Logger log = LoggerFactory.getLogger(MultiFileItemReader.class);
+
+    private final List<Resource> files;
+    private final Function<Resource, ItemStreamReader<T>> readers;
+
+    private final Set<String> filesRead = new LinkedHashSet<>();
+    private final Deque<Resource> waiting = new ArrayDeque<>();
+    private String currentUrl;
+    private ItemStreamReader<T> current;
+
+    public MultiFileItemReader(String name, List<Resource> files, Function<Resource, ItemStreamReader<T>> readers) {
+        setName(name);
+        this.files = files;
+        this.readers = readers;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) {
+        filesRead.clear();
+        waiting.clear();
+        String read = executionContext.getString(getExecutionContextKey(FILES_READ), "");
+        if (!read.isEmpty()) {
+            filesRead.addAll(Arrays.asList(read.split("\n")));
+        }
+        String resumed = executionContext.getString(getExecutionContextKey(FILE_CURRENT), null);
+        boolean resuming = false;
+        for (Resource file : files) {
+            String url = url(file);
+            if (url.equals(resumed)) {
+                waiting.addFirst(file);
+                resuming = true;
+            } else if (!filesRead.contains(url)) {
+                waiting.addLast(file);
+            }
+        }
+        if (!filesRead.isEmpty()) {
+            log.info("Skipping {} of {} files that were read before", files.size() - waiting.size(), files.size());
+        }
+        openFile(resuming ? executionContext : new ExecutionContext());
+    }
+
+    private void openFile(ExecutionContext executionContext) {
+        Resource file = waiting.pollFirst();
+        if (file != null) {
+            log.debug("Reading {}", file.getDescription());
+            currentUrl = url(file);
+            current = readers.apply(file);
+            current.open(executionContext);
+        }
+    }
+
+    @Override
+    public T read() throws Exception {
+        while (current != null) {
+            T item = current.read();
+            if (item != null) {
+                return item;
+            }
+            current.close();
+            current = null;
+            filesRead.add(currentUrl);
+            currentUrl = null;
+            openFile(new ExecutionContext());
+        }
+        return null;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+        executionContext.putString(getExecutionContextKey(FILES_READ), String.join("\n", filesRead));
+        if (current != null) {
+            executionContext.putString(getExecutionContextKey(FILE_CURRENT), currentUrl);
+            current.update(executionContext);
+        } else {
+            executionContext.remove(getExecutionContextKey(FILE_CURRENT));
+        }
+    }
+
+    @Override
+    public void close() {
+        if (current != null) {
+            try {
+                current.close();
+            } finally {
+                current = null;
+            }
+        }
+    }
+
+    private static String url(Resource file) {
+        try {
+            return file.getURL().toString();
+        } catch (IOException e) {
+            throw new ItemStreamException("No URL for input file " + file.getDescription(), e);
+        }
+    }
+}
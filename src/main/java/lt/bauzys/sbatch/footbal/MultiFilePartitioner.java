@@ -0,0 +1,147 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Spreads the files of a directory or glob over at most {@code gridSize} partitions, largest file first to the
+ * partition with the fewest bytes so far, so partitions finish at about the same time. Each partition gets its
+ * files as {@code inputFiles}, URLs one per line in name order. A file is never split.
+ */
+public class MultiFilePartitioner implements Partitioner {
+    public static final String INPUT_FILES = "inputFiles";
+
+    private final List<Resource> files;
+
+    public MultiFilePartitioner(List<Resource> files) {
+        this.files = files;
+    }
+
+    /**
+     * The files {@code location} stands for: every file matching it when it is a pattern such as
+     * {@code file:feeds/games-*.csv}, every file directly inside it when it is a directory, and otherwise
+     * the location itself. Files are sorted by name, hidden files and directories are left out.
+     */
+    public static List<Resource> resolve(ResourcePatternResolver resolver, String location) throws IOException {
+        Resource resource = resolver.getResource(location);
+        if (resource.isFile() && resource.getFile().isDirectory()) {
+            location = location.endsWith("/") ? location + "*" : location + "/*";
+        } else if (!isPattern(location)) {
+            return new ArrayList<>(Collections.singletonList(resource));
+        }
+        List<Resource> files = new ArrayList<>();
+        for (Resource file : resolver.getResources(location)) {
+            String name = file.getFilename();
+            if (name != null && !name.startsWith(".") && file.isReadable()
+                    && !(file.isFile() && file.getFile().isDirectory())) {
+                files.add(file);
+            }
+        }
+        if (files.isEmpty()) {
+            throw new IOException("No input files found at " + location);
+        }
+        files.sort(Comparator.comparing(Resource::getFilename));
+        return files;
+    }
+
+    /**
+     * Whether {@code location} is a directory or a pattern. Such a location is read as a set of files however many
+     * it matches, so files that appear before a restart are read with the set's restart state.
+     */
+    public static boolean isFileSet(ResourcePatternResolver resolver, String location) throws IOException {
+        if (isPattern(location)) {
+            return true;
+        }
+        Resource resource = resolver.getResource(location);
+        return resource.isFile() && resource.getFile().isDirectory();
+    }
+
+    private static boolean isPattern(String location) {
+        int prefixEnd = location.indexOf(':') + 1;
+        String path = location.substring(prefixEnd);
+        return path.indexOf('*') >= 0 || path.indexOf('?') >= 0 || path.indexOf('{') >= 0;
+    }
+
+    /**
+     * The files of a partition, as written by {@link #partition(int)}.
+     */
+    public static List<Resource> files(String inputFiles) {
+        List<Resource> files = new ArrayList<>();
+        for (String url : inputFiles.split("\n")) {
+            try {
+                files.add(new UrlResource(url));
+            } catch (IOException e) {
+                throw new ItemStreamException("Invalid input file " + url, e);
+            }
+        }
+        return files;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        int count = Math.max(1, Math.min(gridSize, files.size()));
+        long[] bytes = new long[count];
+        Map<Resource, Integer> assigned = new IdentityHashMap<>();
+        List<Resource> bySize = new ArrayList<>(files);
+        bySize.sort(Comparator.comparingLong(MultiFilePartitioner::size).reversed());
+        for (Resource file : bySize) {
+            int lightest = 0;
+            for (int i = 1; i < count; i++) {
+                if (bytes[i] < bytes[lightest]) {
+                    lightest = i;
+                }
+            }
+            assigned.put(file, lightest);
+            bytes[lightest] += size(file);
+        }
+        List<List<Resource>> groups = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            groups.add(new ArrayList<>());
+        }
+        for (Resource file : files) {
+            groups.get(assigned.get(file)).add(file);
+        }
+
+        Map<String, ExecutionContext> partitions = new HashMap<>();
+        for (List<Resource> group : groups) {
+            if (group.isEmpty()) {
+                continue;
+            }
+            ExecutionContext context = new ExecutionContext();
+            context.putString(INPUT_FILES, group.stream().map(MultiFilePartitioner::url)
+                    .collect(Collectors.joining("\n")));
+            partitions.put("partition" + partitions.size(), context);
+        }
+        return partitions;
+    }
+
+    private static long size(Resource file) {
+        try {
+            return file.contentLength();
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to read the size of " + file.getDescription(), e);
+        }
+    }
+
+    private static String url(Resource file) {
+        try {
+            return file.getURL().toString();
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to locate " + file.getDescription(), e);
+        }
+    }
+}
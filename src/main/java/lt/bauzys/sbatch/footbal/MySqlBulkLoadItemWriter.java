@@ -0,0 +1,167 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.file.transform.FieldExtractor;
+import org.springframework.dao.IncorrectUpdateSemanticsDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.StatementCallback;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.sql.DatabaseMetaData;
+import java.util.List;
+
+/**
+ * Streams every chunk as CSV into MySQL's {@code LOAD DATA LOCAL INFILE} through an in-memory
+ * {@link InputStream}, without temporary files. The connection needs {@code allowLoadLocalInfile=true}.
+ * Databases other than MySQL, or drivers without the input stream hook, fall back to the INSERT writer.
+ * With {@code replace} a row whose key is already in the table replaces the stored row, otherwise a chunk
+ * with such a row fails, as {@code LOCAL} loads would silently skip it.
+ */
+public class MySqlBulkLoadItemWriter<T> implements ItemWriter<T> {
+    private static final Logger log = LoggerFactory.getLogger(MySqlBulkLoadItemWriter.class);
+
+    private static final String MYSQL_STATEMENT = "com.mysql.cj.jdbc.JdbcStatement";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FieldExtractor<T> fieldExtractor;
+    private final ItemWriter<T> fallback;
+    private final boolean replace;
+    private final String loadStatement;
+
+    private volatile Boolean supported;
+    private Class<?> statementType;
+    private Method setLocalInfileInputStream;
+
+    public MySqlBulkLoadItemWriter(DataSource dataSource, String table, String[] columns,
+                                   FieldExtractor<T> fieldExtractor, ItemWriter<T> fallback) {
+        this(dataSource, table, false, columns, fieldExtractor, fallback);
+    }
+
+    public MySqlBulkLoadItemWriter(DataSource dataSource, String table, boolean replace, String[] columns,
+                                   FieldExtractor<T> fieldExtractor, ItemWriter<T> fallback) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.fieldExtractor = fieldExtractor;
+        this.fallback = fallback;
+        this.replace = replace;
+        this.loadStatement = "LOAD DATA LOCAL INFILE 'chunk.csv' " + (replace ? "REPLACE " : "")
+                + "INTO TABLE " + table
+                + " CHARACTER SET utf8mb4 FIELDS TERMINATED BY ',' ESCAPED BY '\\\\'"
+                + " LINES TERMINATED BY '\\n' (" + String.join(", ", columns) + ")";
+    }
+
+    @Override
+    public void write(List<? extends T> items) throws Exception {
+        if (items.isEmpty()) {
+            return;
+        }
+        if (!isSupported()) {
+            fallback.write(items);
+            return;
+        }
+        byte[] csv = toCsv(items);
+        Integer loaded = jdbcTemplate.execute((StatementCallback<Integer>) statement -> {
+            Object mysqlStatement = statement.unwrap(statementType);
+            try {
+                setLocalInfileInputStream.invoke(mysqlStatement, new ByteArrayInputStream(csv));
+                statement.execute(loadStatement);
+                return statement.getUpdateCount();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not set the LOAD DATA input stream", e);
+            } finally {
+                try {
+                    setLocalInfileInputStream.invoke(mysqlStatement, (InputStream) null);
+                } catch (ReflectiveOperationException ignored) {
+                }
+            }
+        });
+        // a replaced row counts twice, once deleted and once inserted
+        if (loaded == null || loaded < items.size() || loaded > (replace ? 2 * items.size() : items.size())) {
+            throw new IncorrectUpdateSemanticsDataAccessException("LOAD DATA loaded " + loaded
+                    + " rows for a chunk of " + items.size() + " items");
+        }
+    }
+
+    private boolean isSupported() {
+        Boolean result = supported;
+        if (result == null) {
+            synchronized (this) {
+                result = supported;
+                if (result == null) {
+                    result = detect();
+                    supported = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean detect() {
+        try {
+            String product = (String) JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(),
+                    DatabaseMetaData::getDatabaseProductName);
+            if (product == null || !product.toLowerCase().contains("mysql")) {
+                log.info("{} does not support LOAD DATA LOCAL INFILE, falling back to INSERT", product);
+                return false;
+            }
+            statementType = Class.forName(MYSQL_STATEMENT);
+            setLocalInfileInputStream = statementType.getMethod("setLocalInfileInputStream", InputStream.class);
+            return true;
+        } catch (MetaDataAccessException | ReflectiveOperationException e) {
+            log.info("LOAD DATA LOCAL INFILE is not available, falling back to INSERT: {}", e.toString());
+            return false;
+        }
+    }
+
+    private byte[] toCsv(List<? extends T> items) {
+        StringBuilder csv = new StringBuilder(items.size() * 64);
+        for (T item : items) {
+            Object[] fields = fieldExtractor.extract(item);
+            for (int i = 0; i < fields.length; i++) {
+                if (i > 0) {
+                    csv.append(',');
+                }
+                appendField(csv, fields[i]);
+            }
+            csv.append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendField(StringBuilder csv, Object value) {
+        if (value == null) {
+            csv.append("\\N");
+        } else if (value instanceof Integer) {
+            csv.append((int) (Integer) value);
+        } else {
+            String text = value.toString();
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '\\':
+                    case ',':
+                        csv.append('\\').append(c);
+                        break;
+                    case '\n':
+                        csv.append("\\n");
+                        break;
+                    case '\r':
+                        csv.append("\\r");
+                        break;
+                    case '\0':
+                        csv.append("\\0");
+                        break;
+                    default:
+                        csv.append(c);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.batch.item.ItemProcessor;
+
+import java.util.Set;
+
+/**
+ * Drops games whose player is not in the player table, so orphan games never reach the database and the
+ * summarization query does not have to join the player table to ignore them. The ids come from
+ * {@link PlayerKeys}, read once after the players were loaded, which also covers players loaded by earlier
+ * runs. Dropped games are counted as filtered in the step execution.
+ */
+public class PlayerKeyFilter implements ItemProcessor<Game, Game> {
+    private final Set<String> playerIds;
+
+    public PlayerKeyFilter(Set<String> playerIds) {
+        this.playerIds = playerIds;
+    }
+
+    @Override
+    public Game process(Game game) {
+        return playerIds.contains(game.getId()) ? game : null;
+    }
+}
@@ -0,0 +1,58 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Player ids of the player table, read once per running job execution when the game load step starts, which
+ * is after the players were loaded, and dropped when it ends. Registered on the partition manager step when the
+ * game load is partitioned, so its workers share one set however many partitions run.
+ */
+public class PlayerKeys implements StepExecutionListener {
+    private static final Logger log = LoggerFactory.getLogger(PlayerKeys.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, Set<String>> playerIds = new ConcurrentHashMap<>();
+
+    public PlayerKeys(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * The ids loaded for the job execution whose step runs on this thread, empty outside the game load.
+     */
+    public Set<String> current() {
+        StepContext context = StepSynchronizationManager.getContext();
+        Set<String> ids = context == null ? null : playerIds.get(context.getStepExecution().getJobExecutionId());
+        return ids == null ? Collections.emptySet() : ids;
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM player", Long.class);
+        Set<String> ids = new HashSet<>(count == null ? 16 : (int) (count * 4 / 3 + 1));
+        jdbcTemplate.query("SELECT player_id FROM player", (RowCallbackHandler) rs -> ids.add(rs.getString(1)));
+        playerIds.put(stepExecution.getJobExecutionId(), ids);
+        log.info("Loaded {} player ids to filter orphan games", ids.size());
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        playerIds.remove(stepExecution.getJobExecutionId());
+        return null;
+    }
+}
@@ -0,0 +1,68 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits the player_id key space into {@code gridSize} ranges holding about the same number of game rows,
+ * so a handful of long careers does not end up in one partition. Each partition gets
+ * {@code minPlayerId} (inclusive) and {@code maxPlayerId} (exclusive); the first and last range are open.
+ * The game counts come from one pass over the primary key index. Boundaries are compared by the database,
+ * so they follow its collation.
+ */
+public class PlayerRangePartitioner implements Partitioner {
+    public static final String MIN_PLAYER_ID = "minPlayerId";
+    public static final String MAX_PLAYER_ID = "maxPlayerId";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PlayerRangePartitioner(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM game", Long.class);
+        List<String> boundaries = new ArrayList<>();
+        if (total != null && total > 0 && gridSize > 1) {
+            long[] games = {0};
+            jdbcTemplate.query("SELECT player_id, COUNT(*) FROM game GROUP BY player_id ORDER BY player_id",
+                    (RowCallbackHandler) rs -> {
+                        // a range starts at the first player past its share of the games
+                        if (games[0] > 0 && games[0] >= total * (boundaries.size() + 1) / gridSize
+                                && boundaries.size() < gridSize - 1) {
+                            boundaries.add(rs.getString(1));
+                        }
+                        games[0] += rs.getLong(2);
+                    });
+        }
+
+        Map<String, ExecutionContext> partitions = new HashMap<>();
+        String lower = null;
+        for (String upper : boundaries) {
+            partitions.put("partition" + partitions.size(), range(lower, upper));
+            lower = upper;
+        }
+        partitions.put("partition" + partitions.size(), range(lower, null));
+        return partitions;
+    }
+
+    private static ExecutionContext range(String lower, String upper) {
+        ExecutionContext context = new ExecutionContext();
+        if (lower != null) {
+            context.putString(MIN_PLAYER_ID, lower);
+        }
+        if (upper != null) {
+            context.putString(MAX_PLAYER_ID, upper);
+        }
+        return context;
+    }
+}
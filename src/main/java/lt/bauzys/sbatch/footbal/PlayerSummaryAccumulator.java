@@ -0,0 +1,133 @@
+package lt.bauzys.sbatch.footbal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Running {@link PlayerSummary} totals keyed by (player_id, year).
+ * Player ids are dictionary encoded so the key is a single {@code long}, looked up in an
+ * open addressing table; the totals live in one flat {@code int[]}.
+ */
+public class PlayerSummaryAccumulator {
+    private static final int STATS = 10;
+    private static final long EMPTY = -1L;
+
+    private final Map<String, Integer> playerCodes = new HashMap<>();
+    private final List<String> playerIds = new ArrayList<>();
+
+    private long[] slots = newSlots(1024);
+    private int[] slotEntries = new int[1024];
+    private long[] entryKeys = new long[256];
+    private int[] totals = new int[256 * STATS];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public void add(Game game) {
+        int entry = entry(game.getId(), game.getYear());
+        int base = entry * STATS;
+        totals[base] += game.getCompletes();
+        totals[base + 1] += game.getAttempts();
+        totals[base + 2] += game.getPassingYards();
+        totals[base + 3] += game.getPassingTd();
+        totals[base + 4] += game.getInterceptions();
+        totals[base + 5] += game.getRushes();
+        totals[base + 6] += game.getRushYards();
+        totals[base + 7] += game.getReceptions();
+        totals[base + 8] += game.getReceptionYards();
+        totals[base + 9] += game.getTotalTd();
+    }
+
+    public List<PlayerSummary> toSummaries() {
+        List<PlayerSummary> summaries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            long key = entryKeys[i];
+            int base = i * STATS;
+            PlayerSummary summary = new PlayerSummary();
+            summary.setId(playerIds.get(playerCode(key)));
+            summary.setYear(year(key));
+            summary.setCompletes(totals[base]);
+            summary.setAttempts(totals[base + 1]);
+            summary.setPassingYards(totals[base + 2]);
+            summary.setPassingTd(totals[base + 3]);
+            summary.setInterceptions(totals[base + 4]);
+            summary.setRushes(totals[base + 5]);
+            summary.setRushYards(totals[base + 6]);
+            summary.setReceptions(totals[base + 7]);
+            summary.setReceptionYards(totals[base + 8]);
+            summary.setTotalTd(totals[base + 9]);
+            summaries.add(summary);
+        }
+        summaries.sort(Comparator.comparing(PlayerSummary::getId).thenComparingInt(PlayerSummary::getYear));
+        return summaries;
+    }
+
+    private int entry(String playerId, int year) {
+        Integer code = playerCodes.get(playerId);
+        if (code == null) {
+            code = playerIds.size();
+            playerIds.add(playerId);
+            playerCodes.put(playerId, code);
+        }
+        long key = ((long) code << 32) | (year & 0xffffffffL);
+        int mask = slots.length - 1;
+        int slot = hash(key) & mask;
+        while (slots[slot] != EMPTY) {
+            if (slots[slot] == key) {
+                return slotEntries[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == entryKeys.length) {
+            entryKeys = Arrays.copyOf(entryKeys, size * 2);
+            totals = Arrays.copyOf(totals, size * 2 * STATS);
+        }
+        int entry = size++;
+        entryKeys[entry] = key;
+        slots[slot] = key;
+        slotEntries[slot] = entry;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return entry;
+    }
+
+    private void rehash(int capacity) {
+        slots = newSlots(capacity);
+        slotEntries = new int[capacity];
+        int mask = capacity - 1;
+        for (int entry = 0; entry < size; entry++) {
+            int slot = hash(entryKeys[entry]) & mask;
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = entryKeys[entry];
+            slotEntries[slot] = entry;
+        }
+    }
+
+    private static long[] newSlots(int capacity) {
+        long[] slots = new long[capacity];
+        Arrays.fill(slots, EMPTY);
+        return slots;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int playerCode(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int year(long key) {
+        return (int) key;
+    }
+}
@@ -0,0 +1,73 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Writes games through a delegate and adds each chunk's {@link PlayerSummary} totals to the
+ * {@code player_summary_partial} rows of the job instance, in the chunk's transaction, so a restart
+ * continues from the last committed chunk; {@link PlayerSummaryFlushTasklet} writes them out.
+ * Rows are written in (player_id, year) order, which keeps concurrent partitions from deadlocking.
+ */
+public class PlayerSummaryAggregatingWriter implements ItemWriter<Game> {
+    static final String TABLE = "player_summary_partial";
+
+    private static final String ADD_PARTIAL = "INSERT into " + TABLE + "(JOB_INSTANCE_ID, PLAYER_ID, YEAR_NO, "
+            + "COMPLETES, ATTEMPTS, PASSING_YARDS, PASSING_TD, INTERCEPTIONS, RUSHES, RUSH_YARDS, RECEPTIONS, "
+            + "RECEPTION_YARDS, TOTAL_TD) values(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+            + "COMPLETES = COMPLETES + VALUES(COMPLETES), ATTEMPTS = ATTEMPTS + VALUES(ATTEMPTS), "
+            + "PASSING_YARDS = PASSING_YARDS + VALUES(PASSING_YARDS), PASSING_TD = PASSING_TD + VALUES(PASSING_TD), "
+            + "INTERCEPTIONS = INTERCEPTIONS + VALUES(INTERCEPTIONS), RUSHES = RUSHES + VALUES(RUSHES), "
+            + "RUSH_YARDS = RUSH_YARDS + VALUES(RUSH_YARDS), RECEPTIONS = RECEPTIONS + VALUES(RECEPTIONS), "
+            + "RECEPTION_YARDS = RECEPTION_YARDS + VALUES(RECEPTION_YARDS), TOTAL_TD = TOTAL_TD + VALUES(TOTAL_TD)";
+
+    private final ItemWriter<Game> delegate;
+    private final JdbcTemplate jdbcTemplate;
+    private final long jobInstanceId;
+
+    public PlayerSummaryAggregatingWriter(ItemWriter<Game> delegate, DataSource dataSource, long jobInstanceId) {
+        this.delegate = delegate;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jobInstanceId = jobInstanceId;
+    }
+
+    @Override
+    public void write(List<? extends Game> games) throws Exception {
+        delegate.write(games);
+        PlayerSummaryAccumulator chunk = new PlayerSummaryAccumulator();
+        for (Game game : games) {
+            chunk.add(game);
+        }
+        List<PlayerSummary> partials = chunk.toSummaries();
+        jdbcTemplate.batchUpdate(ADD_PARTIAL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                PlayerSummary partial = partials.get(i);
+                ps.setLong(1, jobInstanceId);
+                ps.setString(2, partial.getId());
+                ps.setInt(3, partial.getYear());
+                ps.setInt(4, partial.getCompletes());
+                ps.setInt(5, partial.getAttempts());
+                ps.setInt(6, partial.getPassingYards());
+                ps.setInt(7, partial.getPassingTd());
+                ps.setInt(8, partial.getInterceptions());
+                ps.setInt(9, partial.getRushes());
+                ps.setInt(10, partial.getRushYards());
+                ps.setInt(11, partial.getReceptions());
+                ps.setInt(12, partial.getReceptionYards());
+                ps.setInt(13, partial.getTotalTd());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return partials.size();
+            }
+        });
+    }
+}
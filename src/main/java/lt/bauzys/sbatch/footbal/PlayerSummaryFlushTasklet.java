@@ -0,0 +1,65 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Writes the totals that {@link PlayerSummaryAggregatingWriter} left in {@code player_summary_partial} for
+ * the job instance, which hold every committed chunk of every job execution and partition, and deletes them,
+ * all in the tasklet's transaction. The rows are read one keyset page at a time, right before they are written.
+ * Players missing from the player table are left out, as the summarization query's join leaves them out.
+ */
+public class PlayerSummaryFlushTasklet implements Tasklet {
+
+    private static final Logger log = LoggerFactory.getLogger(PlayerSummaryFlushTasklet.class);
+
+    private static final int SLICE_SIZE = 1000;
+
+    private static final String SELECT_PARTIALS = "SELECT P.PLAYER_ID, P.YEAR_NO, P.COMPLETES, P.ATTEMPTS, "
+            + "P.PASSING_YARDS, P.PASSING_TD, P.INTERCEPTIONS, P.RUSHES, P.RUSH_YARDS, P.RECEPTIONS, "
+            + "P.RECEPTION_YARDS, P.TOTAL_TD FROM " + PlayerSummaryAggregatingWriter.TABLE + " P "
+            + "WHERE P.JOB_INSTANCE_ID = ? AND EXISTS (SELECT 1 FROM PLAYER WHERE PLAYER.PLAYER_ID = P.PLAYER_ID)";
+    private static final String ORDER = " ORDER BY P.PLAYER_ID, P.YEAR_NO LIMIT " + SLICE_SIZE;
+    private static final String FIRST_SLICE = SELECT_PARTIALS + ORDER;
+    private static final String NEXT_SLICE = SELECT_PARTIALS
+            + " AND (P.PLAYER_ID > ? OR (P.PLAYER_ID = ? AND P.YEAR_NO > ?))" + ORDER;
+    private static final String DELETE_PARTIALS =
+            "DELETE FROM " + PlayerSummaryAggregatingWriter.TABLE + " WHERE JOB_INSTANCE_ID = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ItemWriter<PlayerSummary> summaryWriter;
+    private final PlayerSummaryRowMapper mapper = new PlayerSummaryRowMapper();
+
+    public PlayerSummaryFlushTasklet(DataSource dataSource, ItemWriter<PlayerSummary> summaryWriter) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.summaryWriter = summaryWriter;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        long jobInstanceId = chunkContext.getStepContext().getStepExecution().getJobExecution()
+                .getJobInstance().getInstanceId();
+        int flushed = 0;
+        List<PlayerSummary> summaries = jdbcTemplate.query(FIRST_SLICE, mapper, jobInstanceId);
+        while (!summaries.isEmpty()) {
+            summaryWriter.write(summaries);
+            contribution.incrementWriteCount(summaries.size());
+            flushed += summaries.size();
+            PlayerSummary last = summaries.get(summaries.size() - 1);
+            summaries = jdbcTemplate.query(NEXT_SLICE, mapper,
+                    jobInstanceId, last.getId(), last.getId(), last.getYear());
+        }
+        jdbcTemplate.update(DELETE_PARTIALS, jobInstanceId);
+        log.info("Flushed {} player summaries of job instance {}", flushed, jobInstanceId);
+        return RepeatStatus.FINISHED;
+    }
+}
@@ -0,0 +1,147 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamSupport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads and maps items on a background thread, ahead of the step thread, so parsing overlaps with
+ * the writer's database calls. Items are handed over in order through a bounded queue of batches;
+ * a full queue blocks the reading thread.
+ * <p>
+ * The delegate's position runs ahead of what the step has consumed, so its state is captured at the
+ * start of every batch. The saved restart state is the state of the batch being consumed plus the
+ * number of items taken from it, which are skipped again on restart.
+ * The delegate must not be a step scoped proxy, the background thread has no step context.
+ */
+public class PrefetchingItemReader<T> extends ItemStreamSupport implements ItemStreamReader<T> {
+    private static final String SKIP = "prefetch.skip";
+    private static final int BATCH_SIZE = 64;
+
+    private final ItemStreamReader<T> delegate;
+    private final int queueCapacity;
+
+    private BlockingQueue<Batch<T>> queue;
+    private Thread producer;
+    private volatile boolean running;
+    private Batch<T> current;
+    private int index;
+
+    /**
+     * @param prefetchSize number of items that may be read ahead of the step
+     */
+    public PrefetchingItemReader(String name, ItemStreamReader<T> delegate, int prefetchSize) {
+        setName(name);
+        this.delegate = delegate;
+        this.queueCapacity = Math.max(1, prefetchSize / BATCH_SIZE);
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) {
+        delegate.open(executionContext);
+        int skip = executionContext.getInt(getExecutionContextKey(SKIP), 0);
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        current = null;
+        index = 0;
+        running = true;
+        producer = new Thread(() -> produce(skip), getExecutionContextKey("prefetch"));
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    @Override
+    public T read() throws Exception {
+        while (current == null || index == current.items.size()) {
+            if (current != null && current.failure != null) {
+                Throwable failure = current.failure;
+                if (failure instanceof Exception) {
+                    throw (Exception) failure;
+                }
+                throw (Error) failure;
+            }
+            if (current != null && current.last) {
+                return null;
+            }
+            current = queue.take();
+            index = 0;
+        }
+        return current.items.get(index++);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+        if (current != null) {
+            for (Map.Entry<String, Object> entry : current.state.entrySet()) {
+                executionContext.put(entry.getKey(), entry.getValue());
+            }
+            executionContext.putInt(getExecutionContextKey(SKIP), index);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (producer != null) {
+            producer.interrupt();
+            try {
+                producer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ItemStreamException("Interrupted while stopping " + producer.getName(), e);
+            } finally {
+                producer = null;
+                queue = null;
+                current = null;
+            }
+        }
+        delegate.close();
+    }
+
+    private void produce(int skip) {
+        Batch<T> batch = null;
+        try {
+            for (int i = 0; i < skip && delegate.read() != null; i++) {
+                // consumed before the restart
+            }
+            while (running) {
+                batch = new Batch<>();
+                delegate.update(batch.state);
+                T item = null;
+                while (batch.items.size() < BATCH_SIZE && (item = delegate.read()) != null) {
+                    batch.items.add(item);
+                }
+                batch.last = item == null;
+                queue.put(batch);
+                if (batch.last) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            if (batch == null) {
+                batch = new Batch<>();
+            }
+            batch.failure = e;
+            try {
+                queue.put(batch);
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class Batch<T> {
+        private final ExecutionContext state = new ExecutionContext();
+        private final List<T> items = new ArrayList<>(BATCH_SIZE);
+        private boolean last;
+        private Throwable failure;
+    }
+}
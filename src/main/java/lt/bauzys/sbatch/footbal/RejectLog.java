@@ -0,0 +1,147 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.core.step.skip.SkipLimitExceededException;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+/**
+ * Records the items a step skipped in {@code rejected_item}, with the reason, and fails the step once more than
+ * its skip limit were skipped. The limit of a step comes from {@code skipLimits} by step name, partitions share
+ * the limit of their worker step but count on their own. Limits count per step execution, a restart starts
+ * again from zero.
+ * <p>
+ * Registered as listener of every step with a skip limit, it keeps one {@link StepRejects} per running step
+ * execution. Rejected writes are recorded in the chunk transaction that skipped them. Rejected reads may
+ * happen on a prefetch thread, so they are queued and recorded with the next chunk written, or at the end of
+ * the step.
+ */
+public class RejectLog implements StepExecutionListener {
+    private static final String INSERT_REJECT = "INSERT INTO rejected_item"
+            + " (step_name, step_execution_id, line_no, item, reason, rejected_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final int[] REJECT_TYPES = {Types.VARCHAR, Types.BIGINT, Types.BIGINT, Types.VARCHAR,
+            Types.VARCHAR, Types.TIMESTAMP};
+    private static final int MAX_REASON = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ToIntFunction<String> skipLimits;
+    private final Map<Long, StepRejects> steps = new ConcurrentHashMap<>();
+
+    public RejectLog(DataSource dataSource, ToIntFunction<String> skipLimits) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.skipLimits = skipLimits;
+    }
+
+    /**
+     * The rejects of the step execution running on this thread, {@code null} outside a step or when the step
+     * has no skip limit.
+     */
+    public StepRejects current() {
+        StepContext context = StepSynchronizationManager.getContext();
+        return context == null ? null : steps.get(context.getStepExecution().getId());
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        String stepName = stepExecution.getStepName();
+        int partition = stepName.indexOf(':');
+        int limit = skipLimits.applyAsInt(partition < 0 ? stepName : stepName.substring(0, partition));
+        if (limit > 0) {
+            steps.put(stepExecution.getId(), new StepRejects(stepExecution, limit));
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        StepRejects rejects = steps.remove(stepExecution.getId());
+        if (rejects != null) {
+            rejects.recordReads();
+            stepExecution.setReadSkipCount(rejects.readSkips.get());
+            stepExecution.setWriteSkipCount(rejects.writeSkips.get());
+        }
+        return null;
+    }
+
+    private static String reason(Throwable failure) {
+        String reason = NestedExceptionUtils.getMostSpecificCause(failure).toString();
+        return reason.length() > MAX_REASON ? reason.substring(0, MAX_REASON) : reason;
+    }
+
+    /**
+     * Skip counts and queued read rejects of one step execution. Reads may be rejected from any thread,
+     * writes only on the step thread.
+     */
+    public class StepRejects {
+        private final String stepName;
+        private final long stepExecutionId;
+        private final int limit;
+        private final AtomicInteger skips = new AtomicInteger();
+        private final AtomicInteger readSkips = new AtomicInteger();
+        private final AtomicInteger writeSkips = new AtomicInteger();
+        private final Queue<Object[]> pendingReads = new ConcurrentLinkedQueue<>();
+
+        private StepRejects(StepExecution stepExecution, int limit) {
+            this.stepName = stepExecution.getStepName();
+            this.stepExecutionId = stepExecution.getId();
+            this.limit = limit;
+        }
+
+        /**
+         * Skips an input line that could not be mapped to an item.
+         */
+        public void rejectRead(String input, long lineNumber, Exception failure) {
+            skip(failure);
+            readSkips.incrementAndGet();
+            pendingReads.add(row(lineNumber, input, failure));
+        }
+
+        /**
+         * Skips an item the writer refused, recorded in the current transaction.
+         */
+        public void rejectWrite(Object item, Exception failure) {
+            skip(failure);
+            writeSkips.incrementAndGet();
+            jdbcTemplate.update(INSERT_REJECT, row(null, String.valueOf(item), failure), REJECT_TYPES);
+        }
+
+        /**
+         * Records the queued read rejects in the current transaction.
+         */
+        public void recordReads() {
+            List<Object[]> rows = new ArrayList<>();
+            for (Object[] row = pendingReads.poll(); row != null; row = pendingReads.poll()) {
+                rows.add(row);
+            }
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_REJECT, rows, REJECT_TYPES);
+            }
+        }
+
+        private void skip(Exception failure) {
+            if (skips.incrementAndGet() > limit) {
+                throw new SkipLimitExceededException(limit, failure);
+            }
+        }
+
+        private Object[] row(Long lineNumber, String item, Exception failure) {
+            return new Object[]{stepName, stepExecutionId, lineNumber, item, reason(failure),
+                    new Timestamp(System.currentTimeMillis())};
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.file.FlatFileParseException;
+
+/**
+ * Skips the lines the delegate cannot map, such as a non-numeric field, and hands them to the step's
+ * {@link RejectLog.StepRejects} instead of failing the step. The delegate has moved past such a line when it
+ * throws, so reading simply goes on with the next one.
+ */
+public class RejectingItemReader<T> implements ItemStreamReader<T> {
+    private final ItemStreamReader<T> delegate;
+    private final RejectLog.StepRejects rejects;
+
+    public RejectingItemReader(ItemStreamReader<T> delegate, RejectLog.StepRejects rejects) {
+        this.delegate = delegate;
+        this.rejects = rejects;
+    }
+
+    @Override
+    public T read() throws Exception {
+        while (true) {
+            try {
+                return delegate.read();
+            } catch (FlatFileParseException e) {
+                rejects.rejectRead(e.getInput(), e.getLineNumber(), e);
+            }
+        }
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) {
+        delegate.open(executionContext);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+        delegate.update(executionContext);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,93 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobInterruptedException;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worker side of remote partitioning. Polls the job repository for partitions of {@code workerStep}
+ * saved by a {@link RepositoryPollingPartitionHandler}, claims one at a time per thread and executes it
+ * in this process. Any number of workers can share a job repository; with {@code idleTimeoutMillis}
+ * above 0 a worker exits after finding no work for that long, otherwise it runs until stopped.
+ */
+public class RemotePartitionWorker implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(RemotePartitionWorker.class);
+
+    private final JobExplorer jobExplorer;
+    private final JdbcPartitionClaims claims;
+    private final Step workerStep;
+    private final int threads;
+    private final long pollIntervalMillis;
+    private final long idleTimeoutMillis;
+
+    public RemotePartitionWorker(JobExplorer jobExplorer, JdbcPartitionClaims claims, Step workerStep, int threads,
+                                 long pollIntervalMillis, long idleTimeoutMillis) {
+        this.jobExplorer = jobExplorer;
+        this.claims = claims;
+        this.workerStep = workerStep;
+        this.threads = Math.max(threads, 1);
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        log.info("Polling for {} partitions on {} threads", workerStep.getName(), threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new CustomizableThreadFactory(workerStep.getName() + "-"));
+        for (int i = 0; i < threads; i++) {
+            executor.execute(this::work);
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    private void work() {
+        long idleSince = System.currentTimeMillis();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                StepExecution partition = claimNext();
+                if (partition != null) {
+                    execute(partition);
+                    idleSince = System.currentTimeMillis();
+                } else if (idleTimeoutMillis > 0 && System.currentTimeMillis() - idleSince > idleTimeoutMillis) {
+                    log.info("No {} partitions for {} ms, stopping", workerStep.getName(), idleTimeoutMillis);
+                    return;
+                } else {
+                    Thread.sleep(pollIntervalMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private StepExecution claimNext() {
+        for (JdbcPartitionClaims.Candidate candidate : claims.findClaimable(workerStep.getName())) {
+            if (claims.claim(candidate)) {
+                return jobExplorer.getStepExecution(candidate.getJobExecutionId(), candidate.getStepExecutionId());
+            }
+        }
+        return null;
+    }
+
+    private void execute(StepExecution partition) throws InterruptedException {
+        log.info("Claimed {} of job execution {}", partition.getStepName(), partition.getJobExecutionId());
+        try {
+            workerStep.execute(partition);
+        } catch (JobInterruptedException e) {
+            throw new InterruptedException(e.getMessage());
+        }
+        log.info("{} finished with {}", partition.getStepName(), partition.getStatus());
+    }
+}
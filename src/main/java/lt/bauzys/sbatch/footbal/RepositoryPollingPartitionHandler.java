@@ -0,0 +1,105 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.partition.PartitionHandler;
+import org.springframework.batch.core.partition.StepExecutionSplitter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Manager side of remote partitioning. The partitions are saved in the job repository and picked up by
+ * {@link RemotePartitionWorker} processes sharing that database; this handler only polls until every
+ * partition finished. A running partition whose {@code LAST_UPDATED} did not move for
+ * {@code heartbeatTimeoutMillis} (workers update it with every commit) is released for another worker,
+ * which restarts it from its last committed state.
+ */
+public class RepositoryPollingPartitionHandler implements PartitionHandler {
+    private static final Logger log = LoggerFactory.getLogger(RepositoryPollingPartitionHandler.class);
+
+    private final JobExplorer jobExplorer;
+    private final JdbcPartitionClaims claims;
+    private final int gridSize;
+    private final long pollIntervalMillis;
+    private final long heartbeatTimeoutMillis;
+    private final long timeoutMillis;
+
+    public RepositoryPollingPartitionHandler(JobExplorer jobExplorer, JdbcPartitionClaims claims, int gridSize,
+                                             long pollIntervalMillis, long heartbeatTimeoutMillis,
+                                             long timeoutMillis) {
+        this.jobExplorer = jobExplorer;
+        this.claims = claims;
+        this.gridSize = gridSize;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.heartbeatTimeoutMillis = heartbeatTimeoutMillis;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public Collection<StepExecution> handle(StepExecutionSplitter stepSplitter, StepExecution managerStepExecution)
+            throws Exception {
+        Set<StepExecution> partitions = stepSplitter.split(managerStepExecution, gridSize);
+        log.info("Waiting for remote workers to run {} partitions of {}", partitions.size(),
+                managerStepExecution.getStepName());
+        long jobExecutionId = managerStepExecution.getJobExecutionId();
+        Map<Long, StepExecution> running = new HashMap<>();
+        for (StepExecution partition : partitions) {
+            running.put(partition.getId(), partition);
+        }
+        List<StepExecution> finished = new ArrayList<>(partitions.size());
+        long deadline = timeoutMillis > 0 ? System.currentTimeMillis() + timeoutMillis : Long.MAX_VALUE;
+        while (!running.isEmpty()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new TimeoutException(running.size() + " partitions of " + managerStepExecution.getStepName()
+                        + " did not finish within " + timeoutMillis + " ms");
+            }
+            Thread.sleep(pollIntervalMillis);
+            for (Long id : new ArrayList<>(running.keySet())) {
+                StepExecution partition = jobExplorer.getStepExecution(jobExecutionId, id);
+                if (!partition.getStatus().isRunning()) {
+                    copyResult(partition, running.remove(id));
+                    finished.add(partition);
+                } else if (isAbandoned(partition) && claims.release(partition)) {
+                    log.warn("{} has not reported since {}, released it for another worker",
+                            partition.getStepName(), partition.getLastUpdated());
+                }
+            }
+        }
+        return finished;
+    }
+
+    /**
+     * Brings the manager's copy, which belongs to the running job execution, up to date with the worker's result.
+     */
+    private static void copyResult(StepExecution from, StepExecution to) {
+        to.setStatus(from.getStatus());
+        to.setExitStatus(from.getExitStatus());
+        to.setStartTime(from.getStartTime());
+        to.setEndTime(from.getEndTime());
+        to.setLastUpdated(from.getLastUpdated());
+        to.setReadCount(from.getReadCount());
+        to.setWriteCount(from.getWriteCount());
+        to.setFilterCount(from.getFilterCount());
+        to.setCommitCount(from.getCommitCount());
+        to.setRollbackCount(from.getRollbackCount());
+        to.setReadSkipCount(from.getReadSkipCount());
+        to.setWriteSkipCount(from.getWriteSkipCount());
+        to.setProcessSkipCount(from.getProcessSkipCount());
+        to.setVersion(from.getVersion());
+    }
+
+    private boolean isAbandoned(StepExecution partition) {
+        return partition.getStatus() != BatchStatus.STARTING
+                && partition.getLastUpdated() != null
+                && System.currentTimeMillis() - partition.getLastUpdated().getTime() > heartbeatTimeoutMillis;
+    }
+}
@@ -0,0 +1,167 @@
+package lt.bauzys.sbatch.footbal;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Game totals of one group of a rollup {@link Level}. Only the fields of the level's key are set: a career
+ * has no year but the first and last year played, a team season has no player.
+ */
+public class Rollup {
+    public static final String[] STAT_COLUMNS = {"completes", "attempts", "passing_yards", "passing_td",
+            "interceptions", "rushes", "rush_yards", "receptions", "reception_yards", "total_td"};
+
+    /**
+     * How far the game stream, sorted by player id and year, has to move on before no more games can join
+     * a group. Groups are emitted as soon as their scope changes, {@link #ALL} groups at the end.
+     */
+    public enum Scope {
+        PLAYER_YEAR {
+            @Override
+            boolean changed(Game previous, Game next) {
+                return !Objects.equals(previous.getId(), next.getId()) || previous.getYear() != next.getYear();
+            }
+        },
+        PLAYER {
+            @Override
+            boolean changed(Game previous, Game next) {
+                return !Objects.equals(previous.getId(), next.getId());
+            }
+        },
+        ALL {
+            @Override
+            boolean changed(Game previous, Game next) {
+                return false;
+            }
+        };
+
+        abstract boolean changed(Game previous, Game next);
+    }
+
+    public enum Level {
+        PLAYER_YEAR(Scope.PLAYER_YEAR, game -> ""),
+        PLAYER_YEAR_TEAM(Scope.PLAYER_YEAR, Game::getTeam),
+        PLAYER_CAREER(Scope.PLAYER, game -> ""),
+        TEAM_YEAR(Scope.ALL, game -> game.getTeam() + '\t' + game.getYear());
+
+        private final Scope scope;
+        private final Function<Game, Object> groupKey;
+
+        Level(Scope scope, Function<Game, Object> groupKey) {
+            this.scope = scope;
+            this.groupKey = groupKey;
+        }
+
+        public Scope getScope() {
+            return scope;
+        }
+
+        /**
+         * Tells apart the groups of one scope.
+         */
+        Object groupKey(Game game) {
+            return groupKey.apply(game);
+        }
+
+        Rollup newRollup(Game game) {
+            Rollup rollup = new Rollup(this);
+            if (this != TEAM_YEAR) {
+                rollup.playerId = game.getId();
+            }
+            if (this == PLAYER_YEAR_TEAM || this == TEAM_YEAR) {
+                rollup.team = game.getTeam();
+            }
+            rollup.firstYear = game.getYear();
+            rollup.lastYear = game.getYear();
+            return rollup;
+        }
+    }
+
+    private final Level level;
+    private String playerId;
+    private String team;
+    private int firstYear;
+    private int lastYear;
+    private int games;
+    private final int[] stats = new int[STAT_COLUMNS.length];
+
+    private Rollup(Level level) {
+        this.level = level;
+    }
+
+    void add(Game game) {
+        firstYear = Math.min(firstYear, game.getYear());
+        lastYear = Math.max(lastYear, game.getYear());
+        games++;
+        stats[0] += game.getCompletes();
+        stats[1] += game.getAttempts();
+        stats[2] += game.getPassingYards();
+        stats[3] += game.getPassingTd();
+        stats[4] += game.getInterceptions();
+        stats[5] += game.getRushes();
+        stats[6] += game.getRushYards();
+        stats[7] += game.getReceptions();
+        stats[8] += game.getReceptionYards();
+        stats[9] += game.getTotalTd();
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public String getPlayerId() {
+        return playerId;
+    }
+
+    public String getTeam() {
+        return team;
+    }
+
+    /**
+     * The season of a yearly level.
+     */
+    public int getYear() {
+        return firstYear;
+    }
+
+    public int getFirstYear() {
+        return firstYear;
+    }
+
+    public int getLastYear() {
+        return lastYear;
+    }
+
+    public int getGames() {
+        return games;
+    }
+
+    /**
+     * Totals in {@link #STAT_COLUMNS} order.
+     */
+    public int getStat(int index) {
+        return stats[index];
+    }
+
+    public PlayerSummary toPlayerSummary() {
+        PlayerSummary summary = new PlayerSummary();
+        summary.setId(playerId);
+        summary.setYear(firstYear);
+        summary.setCompletes(stats[0]);
+        summary.setAttempts(stats[1]);
+        summary.setPassingYards(stats[2]);
+        summary.setPassingTd(stats[3]);
+        summary.setInterceptions(stats[4]);
+        summary.setRushes(stats[5]);
+        summary.setRushYards(stats[6]);
+        summary.setReceptions(stats[7]);
+        summary.setReceptionYards(stats[8]);
+        summary.setTotalTd(stats[9]);
+        return summary;
+    }
+
+    @Override
+    public String toString() {
+        return level + " " + playerId + " " + team + " " + firstYear + "-" + lastYear + " games=" + games;
+    }
+}
@@ -0,0 +1,59 @@
+package lt.bauzys.sbatch.footbal;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adds up one pass over games sorted by player id and year into any number of rollup levels at once. Each level
+ * holds only the groups of its current {@link Rollup.Scope}, which are closed as soon as the stream leaves it,
+ * so memory stays bounded by the groups per scope rather than by the number of players.
+ */
+public class RollupAggregator {
+    private final List<LevelGroups> levels = new ArrayList<>();
+    private Game previous;
+
+    public RollupAggregator(Rollup.Level... levels) {
+        for (Rollup.Level level : levels) {
+            this.levels.add(new LevelGroups(level));
+        }
+    }
+
+    /**
+     * Adds {@code game} and appends the groups it closed to {@code closed}.
+     */
+    public void add(Game game, List<Rollup> closed) {
+        for (LevelGroups level : levels) {
+            if (previous != null && level.level.getScope().changed(previous, game)) {
+                level.close(closed);
+            }
+            level.groups.computeIfAbsent(level.level.groupKey(game), key -> level.level.newRollup(game)).add(game);
+        }
+        previous = game;
+    }
+
+    /**
+     * Closes every open group, the stream ended.
+     */
+    public void finish(List<Rollup> closed) {
+        for (LevelGroups level : levels) {
+            level.close(closed);
+        }
+        previous = null;
+    }
+
+    private static class LevelGroups {
+        private final Rollup.Level level;
+        private final Map<Object, Rollup> groups = new LinkedHashMap<>();
+
+        private LevelGroups(Rollup.Level level) {
+            this.level = level;
+        }
+
+        private void close(List<Rollup> closed) {
+            closed.addAll(groups.values());
+            groups.clear();
+        }
+    }
+}
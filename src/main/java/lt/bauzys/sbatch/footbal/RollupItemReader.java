@@ -0,0 +1,59 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamSupport;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns a game stream sorted by player id and year into the closed groups of a {@link RollupAggregator}.
+ * Open groups only live in memory, so nothing is saved for restart: a restart reads all games again and the
+ * writers replace the rows written before.
+ */
+public class RollupItemReader extends ItemStreamSupport implements ItemStreamReader<Rollup> {
+    private final ItemStreamReader<Game> games;
+    private final Rollup.Level[] levels;
+    private final List<Rollup> closed = new ArrayList<>();
+    private final ArrayDeque<Rollup> pending = new ArrayDeque<>();
+
+    private RollupAggregator aggregator;
+    private boolean finished;
+
+    public RollupItemReader(ItemStreamReader<Game> games, Rollup.Level... levels) {
+        setName("rollupItemReader");
+        this.games = games;
+        this.levels = levels;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) {
+        games.open(new ExecutionContext());
+        aggregator = new RollupAggregator(levels);
+        pending.clear();
+        finished = false;
+    }
+
+    @Override
+    public Rollup read() throws Exception {
+        while (pending.isEmpty() && !finished) {
+            Game game = games.read();
+            if (game == null) {
+                aggregator.finish(closed);
+                finished = true;
+            } else {
+                aggregator.add(game, closed);
+            }
+            pending.addAll(closed);
+            closed.clear();
+        }
+        return pending.poll();
+    }
+
+    @Override
+    public void close() {
+        games.close();
+    }
+}
@@ -3,14 +3,52 @@ package lt.bauzys.sbatch.footbal;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs {@code footballJob} once for the {@code playerFile} and {@code gameFile} job parameters and exits with
+ * the job's status, {@code 0} when it completed. Files left out default to the bundled sample data.
+ * <p>
+ * With {@code daemon} as the first argument the process stays up instead and runs the job for every file set
+ * arriving in {@code daemon.input.dir}, see {@link FootballDaemon}.
+ */
 @SpringBootApplication
 public class SbatchFootballApplication {
+    static final String DAEMON = "daemon";
+
+    private static final String[][] DEFAULT_FILES = {
+            {"playerFile", "/input/player.csv"},
+            {"gameFile", "/input/games.csv"}};
 
     public static void main(String[] args) {
-        String[] newArgs = new String[] {
-                "playerFile=/input/player.csv",
-                "gameFile=/input/games.csv",
-                "commit.interval=3"};
-        SpringApplication.run(SbatchFootballApplication.class, newArgs);
+        SpringApplication application = new SpringApplication(SbatchFootballApplication.class);
+        if (args.length > 0 && DAEMON.equals(args[0])) {
+            Map<String, Object> daemon = new HashMap<>();
+            daemon.put("daemon.enabled", true);
+            daemon.put("spring.batch.job.enabled", false);
+            application.setDefaultProperties(daemon);
+            application.run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        System.exit(SpringApplication.exit(application.run(withDefaultFiles(args))));
+    }
+
+    /**
+     * Adds the sample file of every file job parameter the command line does not name.
+     */
+    static String[] withDefaultFiles(String[] args) {
+        List<String> all = new ArrayList<>();
+        for (String[] file : DEFAULT_FILES) {
+            String name = file[0];
+            if (Arrays.stream(args).noneMatch(arg -> arg.startsWith(name + "=") || arg.startsWith(name + "("))) {
+                all.add(name + "=" + file[1]);
+            }
+        }
+        all.addAll(Arrays.asList(args));
+        return all.toArray(new String[0]);
     }
 }
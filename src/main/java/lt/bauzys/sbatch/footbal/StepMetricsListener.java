@@ -0,0 +1,219 @@
+package lt.bauzys.sbatch.footbal;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every chunk in three phases and publishes them as {@code football.chunk.read},
+ * {@code football.chunk.write} and {@code football.chunk.commit} timers, tagged with the step name.
+ * Read runs from the start of the chunk to the first write, commit from the end of the write until
+ * the transaction committed, which includes the job repository update.
+ * Nothing is timed per item, the item callbacks only count errors.
+ * The timings of each step execution are also kept until {@link #remove(StepExecution)} for the job report.
+ */
+public class StepMetricsListener implements StepExecutionListener, ChunkListener,
+        ItemReadListener<Object>, ItemWriteListener<Object> {
+
+    private final MeterRegistry registry;
+    private final Map<Long, StepTimings> timings = new ConcurrentHashMap<>();
+    private final ThreadLocal<ChunkClock> clocks = ThreadLocal.withInitial(ChunkClock::new);
+
+    public StepMetricsListener(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public StepTimings getTimings(StepExecution stepExecution) {
+        return timings.get(stepExecution.getId());
+    }
+
+    public void remove(StepExecution stepExecution) {
+        timings.remove(stepExecution.getId());
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        String step = stepName(stepExecution);
+        timings.put(stepExecution.getId(), new StepTimings(
+                timer("football.chunk.read", step), timer("football.chunk.write", step),
+                timer("football.chunk.commit", step)));
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        String step = stepName(stepExecution);
+        Counter.builder("football.step.items")
+                .tag("step", step)
+                .register(registry)
+                .increment(stepExecution.getWriteCount());
+        long millis = stepExecution.getStartTime() == null ? 0
+                : System.currentTimeMillis() - stepExecution.getStartTime().getTime();
+        if (millis > 0) {
+            DistributionSummary.builder("football.step.throughput")
+                    .tag("step", step)
+                    .baseUnit("items/s")
+                    .register(registry)
+                    .record(stepExecution.getWriteCount() * 1000.0 / millis);
+        }
+        return null;
+    }
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        ChunkClock clock = clocks.get();
+        clock.start = System.nanoTime();
+        clock.writeStart = 0;
+        clock.writeEnd = 0;
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        ChunkClock clock = clocks.get();
+        StepTimings stepTimings = timings.get(context.getStepContext().getStepExecution().getId());
+        if (stepTimings == null || clock.start == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (clock.writeEnd == 0) {
+            stepTimings.read.record(now - clock.start);
+        } else {
+            stepTimings.read.record(clock.writeStart - clock.start);
+            stepTimings.write.record(clock.writeEnd - clock.writeStart);
+            stepTimings.commit.record(now - clock.writeEnd);
+        }
+        clock.start = 0;
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        clocks.get().start = 0;
+    }
+
+    @Override
+    public void beforeRead() {
+    }
+
+    @Override
+    public void afterRead(Object item) {
+    }
+
+    @Override
+    public void onReadError(Exception ex) {
+        registry.counter("football.read.errors", "exception", ex.getClass().getSimpleName()).increment();
+    }
+
+    @Override
+    public void beforeWrite(List<?> items) {
+        clocks.get().writeStart = System.nanoTime();
+    }
+
+    @Override
+    public void afterWrite(List<?> items) {
+        clocks.get().writeEnd = System.nanoTime();
+    }
+
+    @Override
+    public void onWriteError(Exception exception, List<?> items) {
+        registry.counter("football.write.errors", "exception", exception.getClass().getSimpleName()).increment();
+    }
+
+    private PhaseTimer timer(String name, String step) {
+        return new PhaseTimer(Timer.builder(name)
+                .tag("step", step)
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    /**
+     * Partition step executions are named {@code worker:partitionN}, all partitions share the worker's meters.
+     */
+    private static String stepName(StepExecution stepExecution) {
+        String name = stepExecution.getStepName();
+        int partition = name.indexOf(':');
+        return partition < 0 ? name : name.substring(0, partition);
+    }
+
+    private static class ChunkClock {
+        private long start;
+        private long writeStart;
+        private long writeEnd;
+    }
+
+    /**
+     * Chunk phase timings of one step execution.
+     */
+    public static class StepTimings {
+        private final PhaseTimer read;
+        private final PhaseTimer write;
+        private final PhaseTimer commit;
+
+        private StepTimings(PhaseTimer read, PhaseTimer write, PhaseTimer commit) {
+            this.read = read;
+            this.write = write;
+            this.commit = commit;
+        }
+
+        public PhaseTimer getRead() {
+            return read;
+        }
+
+        public PhaseTimer getWrite() {
+            return write;
+        }
+
+        public PhaseTimer getCommit() {
+            return commit;
+        }
+    }
+
+    /**
+     * Records into the shared Micrometer timer and keeps the count, total and maximum of its own step execution.
+     */
+    public static class PhaseTimer {
+        private final Timer timer;
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+
+        private PhaseTimer(Timer timer) {
+            this.timer = timer;
+        }
+
+        private synchronized void record(long nanos) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized double getMeanMillis() {
+            return count == 0 ? 0 : totalNanos / 1e6 / count;
+        }
+
+        public synchronized double getMaxMillis() {
+            return maxNanos / 1e6;
+        }
+
+        public synchronized double getTotalMillis() {
+            return totalNanos / 1e6;
+        }
+    }
+}
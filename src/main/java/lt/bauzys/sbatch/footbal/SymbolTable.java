@@ -0,0 +1,102 @@
+package lt.bauzys.sbatch.footbal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical instances and int codes of low-cardinality values, player ids and team names, shared by the
+ * readers of one job execution. Every game of a player then refers to the same id String instead of a copy
+ * per line. Safe for concurrent use by partition and split flow threads.
+ */
+public class SymbolTable {
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] symbols = new String[1024];
+    private int size;
+
+    public String intern(String value) {
+        return symbol(code(value));
+    }
+
+    public int code(String value) {
+        Integer code = codes.get(value);
+        return code != null ? code : add(value);
+    }
+
+    public String symbol(int code) {
+        return symbols[code];
+    }
+
+    public int size() {
+        return codes.size();
+    }
+
+    private synchronized int add(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (size == symbols.length) {
+            symbols = Arrays.copyOf(symbols, size * 2);
+        }
+        symbols[size] = value;
+        codes.put(value, size);
+        return size++;
+    }
+
+    /**
+     * Direct mapped cache in front of the table for readers that scan bytes, so a value seen recently is
+     * resolved without decoding it into a String first. Not thread-safe, meant for one reader.
+     */
+    public ByteCache byteCache() {
+        return new ByteCache(this);
+    }
+
+    public static class ByteCache {
+        private static final int SLOTS = 4096;
+
+        private final SymbolTable table;
+        private final byte[][] keys = new byte[SLOTS][];
+        private final String[] values = new String[SLOTS];
+
+        private ByteCache(SymbolTable table) {
+            this.table = table;
+        }
+
+        /**
+         * The canonical String of the UTF-8 bytes {@code [start, end)} of {@code buffer}.
+         */
+        public String lookup(ByteBuffer buffer, int start, int end) {
+            int hash = 0x811C9DC5;
+            for (int i = start; i < end; i++) {
+                hash = (hash ^ buffer.get(i)) * 0x01000193;
+            }
+            int slot = (hash ^ (hash >>> 16)) & (SLOTS - 1);
+            byte[] key = keys[slot];
+            if (key != null && matches(key, buffer, start, end)) {
+                return values[slot];
+            }
+            key = new byte[end - start];
+            for (int i = 0; i < key.length; i++) {
+                key[i] = buffer.get(start + i);
+            }
+            String value = table.intern(new String(key, StandardCharsets.UTF_8));
+            keys[slot] = key;
+            values[slot] = value;
+            return value;
+        }
+
+        private static boolean matches(byte[] key, ByteBuffer buffer, int start, int end) {
+            if (key.length != end - start) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != buffer.get(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link SymbolTable} per running job execution, created before the job starts and dropped when it ends.
+ * Readers look theirs up once, on the step thread, and then hold the instance itself, so the table works on
+ * split flow, partition and prefetch threads alike, none of which carry the job context.
+ */
+public class SymbolTables implements JobExecutionListener {
+    private final Map<Long, SymbolTable> tables = new ConcurrentHashMap<>();
+
+    /**
+     * The table of the job execution whose step runs on this thread, {@code null} outside a step.
+     */
+    public SymbolTable current() {
+        StepContext context = StepSynchronizationManager.getContext();
+        return context == null ? null : tables.get(context.getStepExecution().getJobExecutionId());
+    }
+
+    @Override
+    public void beforeJob(JobExecution jobExecution) {
+        tables.put(jobExecution.getId(), new SymbolTable());
+    }
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        tables.remove(jobExecution.getId());
+    }
+}
@@ -0,0 +1,147 @@
+package lt.bauzys.sbatch.footbal;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+/**
+ * Writes {@code player.csv} and {@code games.csv} files in the bundled input format at any scale.
+ * Output only depends on the arguments, so runs are reproducible. Career lengths follow a Pareto
+ * distribution with shape {@code skew}, so like in the real data a minority of long careers holds
+ * most of the (player_id, year) keys, and a small share of rows leaves {@code receptions} empty.
+ * Players are generated until the requested number of game rows is written.
+ *
+ * <pre>
+ * SyntheticDataGenerator [--games=10000000] [--seed=42] [--skew=1.1] [--output=target/synthetic]
+ * </pre>
+ */
+public class SyntheticDataGenerator {
+    private static final String[] TEAMS = {"ari", "atl", "rav", "buf", "car", "chi", "cin", "cle", "dal", "den",
+            "det", "gnb", "htx", "clt", "jax", "kan", "sdg", "ram", "mia", "min", "nwe", "nor", "nyg", "nyj",
+            "rai", "phi", "pit", "sfo", "sea", "tam", "oti", "was"};
+    private static final String[] POSITIONS = {"qb", "rb", "rb", "wr", "wr", "wr", "te"};
+    private static final int WEEKS = 17;
+    private static final int MAX_SEASONS = 20;
+    private static final int FIRST_YEAR = 1970;
+    private static final double EMPTY_RECEPTIONS = 0.025;
+
+    private final long games;
+    private final double skew;
+    private final SplittableRandom random;
+
+    public SyntheticDataGenerator(long games, long seed, double skew) {
+        this.games = games;
+        this.skew = skew;
+        this.random = new SplittableRandom(seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        long games = 10_000_000;
+        long seed = 42;
+        double skew = 1.1;
+        Path output = Paths.get("target", "synthetic");
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--games=")) {
+                games = Long.parseLong(value);
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(value);
+            } else if (arg.startsWith("--skew=")) {
+                skew = Double.parseDouble(value);
+            } else if (arg.startsWith("--output=")) {
+                output = Paths.get(value);
+            } else {
+                throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+        }
+        Files.createDirectories(output);
+        new SyntheticDataGenerator(games, seed, skew)
+                .generate(output.resolve("player.csv"), output.resolve("games.csv"));
+    }
+
+    public void generate(Path playerFile, Path gameFile) throws IOException {
+        long written = 0;
+        int players = 0;
+        try (BufferedWriter playerOut = Files.newBufferedWriter(playerFile, StandardCharsets.UTF_8);
+             BufferedWriter gameOut = Files.newBufferedWriter(gameFile, StandardCharsets.UTF_8)) {
+            while (written < games) {
+                int seasons = (int) Math.min(MAX_SEASONS, Math.pow(1 - random.nextDouble(), -1 / skew));
+                int weeks = 8 + random.nextInt(WEEKS - 7);
+                int count = (int) Math.min((long) seasons * weeks, games - written);
+                writePlayer(playerOut, gameOut, playerId(players++), count, weeks);
+                written += count;
+            }
+        }
+    }
+
+    private void writePlayer(BufferedWriter playerOut, BufferedWriter gameOut, String id, int count, int weeks)
+            throws IOException {
+        String position = POSITIONS[random.nextInt(POSITIONS.length)];
+        int debutYear = FIRST_YEAR + random.nextInt(50 - count / weeks);
+        int birthYear = debutYear - 21 - random.nextInt(4);
+        playerOut.append(id).append(',').append(lastName(id)).append(',').append(firstName(id)).append(',')
+                .append(position).append(',').append(Integer.toString(birthYear)).append(',')
+                .append(Integer.toString(debutYear)).append('\n');
+
+        String team = TEAMS[random.nextInt(TEAMS.length)];
+        for (int g = 0; g < count; g++) {
+            int year = debutYear + g / weeks;
+            int week = g % weeks + 1;
+            if (week == 1 && random.nextInt(8) == 0) {
+                team = TEAMS[random.nextInt(TEAMS.length)];
+            }
+            String opponent = TEAMS[random.nextInt(TEAMS.length)];
+            while (opponent.equals(team)) {
+                opponent = TEAMS[random.nextInt(TEAMS.length)];
+            }
+            writeGame(gameOut, id, year, team, week, opponent, position);
+        }
+    }
+
+    private void writeGame(BufferedWriter out, String id, int year, String team, int week, String opponent,
+                           String position) throws IOException {
+        boolean passer = position.equals("qb");
+        boolean rusher = position.equals("rb") || passer;
+        int attempts = passer ? 15 + random.nextInt(30) : 0;
+        int completes = passer ? attempts / 2 + random.nextInt(attempts / 2 + 1) : 0;
+        int passingYards = passer ? completes * (5 + random.nextInt(8)) : 0;
+        int passingTd = passer ? random.nextInt(4) : 0;
+        int interceptions = passer ? random.nextInt(3) : 0;
+        int rushes = rusher ? random.nextInt(passer ? 6 : 30) : random.nextInt(2);
+        int rushYards = rushes == 0 ? 0 : rushes * (random.nextInt(9) - 1);
+        int receptions = passer ? 0 : random.nextInt(rusher ? 5 : 10);
+        int receptionYards = receptions * random.nextInt(16);
+        int totalTd = random.nextInt(rusher && !passer ? 3 : 2);
+        out.append(id).append(',').append(Integer.toString(year)).append(',').append(team).append(',')
+                .append(Integer.toString(week)).append(',').append(opponent).append(',')
+                .append(Integer.toString(completes)).append(',').append(Integer.toString(attempts)).append(',')
+                .append(Integer.toString(passingYards)).append(',').append(Integer.toString(passingTd)).append(',')
+                .append(Integer.toString(interceptions)).append(',').append(Integer.toString(rushes)).append(',')
+                .append(Integer.toString(rushYards)).append(',')
+                .append(random.nextDouble() < EMPTY_RECEPTIONS ? "" : Integer.toString(receptions)).append(',')
+                .append(Integer.toString(receptionYards)).append(',').append(Integer.toString(totalTd))
+                .append('\n');
+    }
+
+    private static String playerId(int index) {
+        StringBuilder id = new StringBuilder(8);
+        int n = index / 100;
+        for (int i = 0; i < 6; i++) {
+            id.append((char) ((i == 0 || i == 4 ? 'A' : 'a') + n % 26));
+            n /= 26;
+        }
+        return id.append(String.format("%02d", index % 100)).toString();
+    }
+
+    private static String lastName(String id) {
+        return id.substring(0, 4) + "son";
+    }
+
+    private static String firstName(String id) {
+        return id.substring(4, 6) + "ny";
+    }
+}
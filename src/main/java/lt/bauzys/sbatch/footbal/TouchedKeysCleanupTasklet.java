@@ -0,0 +1,39 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Deletes the {@code player_summary_touched} keys of the job instance once the incremental summarization
+ * completed, in the tasklet's transaction. Keys of other job instances are left alone, and a failure fails
+ * the step, so a restart deletes them without recomputing the summaries again.
+ */
+public class TouchedKeysCleanupTasklet implements Tasklet {
+
+    private static final Logger log = LoggerFactory.getLogger(TouchedKeysCleanupTasklet.class);
+
+    private static final String DELETE_TOUCHED =
+            "DELETE FROM " + TouchedKeysGameWriter.TOUCHED_TABLE + " WHERE job_instance_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TouchedKeysCleanupTasklet(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) {
+        long jobInstanceId = chunkContext.getStepContext().getStepExecution().getJobExecution()
+                .getJobInstance().getInstanceId();
+        int cleared = jdbcTemplate.update(DELETE_TOUCHED, jobInstanceId);
+        log.info("Cleared {} touched player summary keys of job instance {}", cleared, jobInstanceId);
+        return RepeatStatus.FINISHED;
+    }
+}
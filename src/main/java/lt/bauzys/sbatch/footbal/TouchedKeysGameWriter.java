@@ -0,0 +1,45 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes games through a delegate and records their (player_id, year) keys in
+ * {@code player_summary_touched}, under the job instance, within the same chunk transaction, so an
+ * incremental summarization only recomputes the summaries the load changed.
+ */
+public class TouchedKeysGameWriter implements ItemWriter<Game> {
+    static final String TOUCHED_TABLE = "player_summary_touched";
+
+    private static final String INSERT_TOUCHED =
+            "INSERT IGNORE INTO " + TOUCHED_TABLE + " (job_instance_id, player_id, year_no) VALUES (?, ?, ?)";
+
+    private final ItemWriter<Game> delegate;
+    private final JdbcTemplate jdbcTemplate;
+    private final long jobInstanceId;
+
+    public TouchedKeysGameWriter(ItemWriter<Game> delegate, DataSource dataSource, long jobInstanceId) {
+        this.delegate = delegate;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jobInstanceId = jobInstanceId;
+    }
+
+    @Override
+    public void write(List<? extends Game> games) throws Exception {
+        delegate.write(games);
+        Set<String> seen = new LinkedHashSet<>();
+        List<Object[]> keys = new ArrayList<>();
+        for (Game game : games) {
+            if (seen.add(game.getId() + '\u0000' + game.getYear())) {
+                keys.add(new Object[]{jobInstanceId, game.getId(), game.getYear()});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_TOUCHED, keys);
+    }
+}
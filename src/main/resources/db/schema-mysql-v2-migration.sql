@@ -0,0 +1,34 @@
+-- Migrates a database created from the original, keyless schema-mysql.sql to schema v2.
+-- Run it once, with the job stopped:
+--   mysql -h $MYSQL_HOST -u root batch < src/main/resources/db/schema-mysql-v2-migration.sql
+-- Duplicate player and player_summary rows, left behind by reruns, collapse to one row per key.
+
+-- player: one row per player_id
+CREATE TABLE player_v2 LIKE player;
+ALTER TABLE player_v2
+    MODIFY player_id VARCHAR(30) NOT NULL,
+    ADD PRIMARY KEY (player_id);
+INSERT IGNORE INTO player_v2 SELECT * FROM player;
+RENAME TABLE player TO player_v1, player_v2 TO player;
+DROP TABLE player_v1;
+
+-- game: clustered by (player_id, year, week), game_id keeps rows that share a week apart
+ALTER TABLE game
+    MODIFY player_id VARCHAR(30) NOT NULL,
+    MODIFY year INT(11) NOT NULL,
+    MODIFY week INT(11) NOT NULL,
+    ADD COLUMN game_id BIGINT NOT NULL AUTO_INCREMENT FIRST,
+    ADD COLUMN job_instance_id BIGINT,
+    ADD PRIMARY KEY (player_id, year, week, game_id),
+    ADD KEY game_id (game_id),
+    ADD KEY game_job_instance_id (job_instance_id);
+
+-- player_summary: one row per (id, year_no); skip this block if the table already has its primary key
+CREATE TABLE player_summary_v2 LIKE player_summary;
+ALTER TABLE player_summary_v2
+    MODIFY id VARCHAR(30) NOT NULL,
+    MODIFY year_no INT(11) NOT NULL,
+    ADD PRIMARY KEY (id, year_no);
+INSERT IGNORE INTO player_summary_v2 SELECT * FROM player_summary;
+RENAME TABLE player_summary TO player_summary_v1, player_summary_v2 TO player_summary;
+DROP TABLE player_summary_v1;
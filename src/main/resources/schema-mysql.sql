@@ -1,18 +1,20 @@
 CREATE TABLE IF NOT EXISTS player (
-    player_id VARCHAR(30),
+    player_id VARCHAR(30) NOT NULL,
     last_name VARCHAR(30),
     first_name VARCHAR(30),
     position VARCHAR(30),
     birth_year INT(11),
-    debut_year INT(11)
---     PRIMARY KEY (player_id)
+    debut_year INT(11),
+    PRIMARY KEY (player_id)
 );
 
+-- game_id only breaks ties: the same player id can appear twice in one week (traded players, reused ids)
 CREATE TABLE IF NOT EXISTS game (
-    player_id VARCHAR(30),
-    year INT(11),
+    game_id BIGINT NOT NULL AUTO_INCREMENT,
+    player_id VARCHAR(30) NOT NULL,
+    year INT(11) NOT NULL,
     team VARCHAR(30),
-    week INT(11),
+    week INT(11) NOT NULL,
     opponent VARCHAR(30),
     completes INT(11),
     attempts INT(11),
@@ -23,13 +25,92 @@ CREATE TABLE IF NOT EXISTS game (
     rush_yards INT(11),
     receptions INT(11),
     reception_yards INT(11),
-    total_td INT(11)
---     PRIMARY KEY (player_id)
+    total_td INT(11),
+    job_instance_id BIGINT,
+    PRIMARY KEY (player_id, year, week, game_id),
+    KEY game_id (game_id),
+    KEY game_job_instance_id (job_instance_id)
+);
+
+-- the gameFile job parameter each job instance loaded, a later instance with the same one replaces its games
+CREATE TABLE IF NOT EXISTS game_load (
+    job_instance_id BIGINT NOT NULL,
+    game_file VARCHAR(1024) NOT NULL,
+    PRIMARY KEY (job_instance_id)
 );
 
 CREATE TABLE IF NOT EXISTS player_summary (
-    id VARCHAR(30),
-    year_no INT(11),
+    id VARCHAR(30) NOT NULL,
+    year_no INT(11) NOT NULL,
+    completes INT(11),
+    attempts INT(11),
+    passing_yards INT(11),
+    passing_td INT(11),
+    interceptions INT(11),
+    rushes INT(11),
+    rush_yards INT(11),
+    receptions INT(11),
+    reception_yards INT(11),
+    total_td INT(11),
+    PRIMARY KEY (id, year_no)
+);
+
+CREATE TABLE IF NOT EXISTS player_summary_touched (
+    job_instance_id BIGINT NOT NULL,
+    player_id VARCHAR(30) NOT NULL,
+    year_no INT(11) NOT NULL,
+    PRIMARY KEY (job_instance_id, player_id, year_no)
+);
+
+CREATE TABLE IF NOT EXISTS player_summary_partial (
+    job_instance_id BIGINT NOT NULL,
+    player_id VARCHAR(30) NOT NULL,
+    year_no INT(11) NOT NULL,
+    completes INT(11),
+    attempts INT(11),
+    passing_yards INT(11),
+    passing_td INT(11),
+    interceptions INT(11),
+    rushes INT(11),
+    rush_yards INT(11),
+    receptions INT(11),
+    reception_yards INT(11),
+    total_td INT(11),
+    PRIMARY KEY (job_instance_id, player_id, year_no)
+);
+
+CREATE TABLE IF NOT EXISTS leaderboard (
+    year_no INT(11) NOT NULL,
+    stat VARCHAR(30) NOT NULL,
+    rank_no INT(11) NOT NULL,
+    player_id VARCHAR(30) NOT NULL,
+    stat_value INT(11) NOT NULL,
+    PRIMARY KEY (year_no, stat, rank_no)
+);
+
+CREATE TABLE IF NOT EXISTS player_team_summary (
+    player_id VARCHAR(30) NOT NULL,
+    year_no INT(11) NOT NULL,
+    team VARCHAR(30) NOT NULL,
+    games INT(11),
+    completes INT(11),
+    attempts INT(11),
+    passing_yards INT(11),
+    passing_td INT(11),
+    interceptions INT(11),
+    rushes INT(11),
+    rush_yards INT(11),
+    receptions INT(11),
+    reception_yards INT(11),
+    total_td INT(11),
+    PRIMARY KEY (player_id, year_no, team)
+);
+
+CREATE TABLE IF NOT EXISTS player_career_summary (
+    player_id VARCHAR(30) NOT NULL,
+    first_year INT(11),
+    last_year INT(11),
+    games INT(11),
     completes INT(11),
     attempts INT(11),
     passing_yards INT(11),
@@ -39,6 +120,36 @@ CREATE TABLE IF NOT EXISTS player_summary (
     rush_yards INT(11),
     receptions INT(11),
     reception_yards INT(11),
-    total_td INT(11)
---     PRIMARY KEY (player_id)
+    total_td INT(11),
+    PRIMARY KEY (player_id)
+);
+
+CREATE TABLE IF NOT EXISTS team_summary (
+    team VARCHAR(30) NOT NULL,
+    year_no INT(11) NOT NULL,
+    games INT(11),
+    completes INT(11),
+    attempts INT(11),
+    passing_yards INT(11),
+    passing_td INT(11),
+    interceptions INT(11),
+    rushes INT(11),
+    rush_yards INT(11),
+    receptions INT(11),
+    reception_yards INT(11),
+    total_td INT(11),
+    PRIMARY KEY (team, year_no)
+);
+
+-- items skipped by steps with a skip limit, line_no is set for input lines that could not be parsed
+CREATE TABLE IF NOT EXISTS rejected_item (
+    reject_id BIGINT NOT NULL AUTO_INCREMENT,
+    step_name VARCHAR(100) NOT NULL,
+    step_execution_id BIGINT NOT NULL,
+    line_no BIGINT,
+    item TEXT,
+    reason VARCHAR(1000),
+    rejected_at TIMESTAMP NULL,
+    PRIMARY KEY (reject_id),
+    KEY step_execution_id (step_execution_id)
 );
@@ -0,0 +1,210 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.core.step.skip.SkipLimitExceededException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.database.JdbcBatchItemWriter;
+import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BisectingItemWriterTests {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate chunkTransaction;
+    private RejectLog rejectLog;
+    private StepExecution stepExecution;
+    private final AtomicInteger writes = new AtomicInteger();
+    private BisectingItemWriter<Player> writer;
+
+    @BeforeEach
+    void createPlayers() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName("bisectingItemWriter;MODE=MySQL")
+                .addScript("schema-mysql.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(database);
+        chunkTransaction = new TransactionTemplate(transactionManager);
+        rejectLog = new RejectLog(database, step -> 3);
+        stepExecution = new JobExecution(1L).createStepExecution("playerLoadStep");
+        stepExecution.setId(7L);
+        StepSynchronizationManager.register(stepExecution);
+        rejectLog.beforeStep(stepExecution);
+
+        JdbcBatchItemWriter<Player> playerWriter = new JdbcBatchItemWriterBuilder<Player>()
+                .dataSource(database)
+                .sql("INSERT INTO player (player_id, last_name) VALUES (:id, :lastName)")
+                .beanMapped()
+                .build();
+        playerWriter.afterPropertiesSet();
+        ItemWriter<Player> countingWriter = players -> {
+            writes.incrementAndGet();
+            playerWriter.write(players);
+        };
+        writer = new BisectingItemWriter<>(countingWriter, rejectLog, transactionManager);
+        jdbcTemplate.update("INSERT INTO player (player_id, last_name) VALUES ('P03', 'Old'), ('P11', 'Old')");
+    }
+
+    @AfterEach
+    void shutdown() {
+        StepSynchronizationManager.close();
+        database.shutdown();
+    }
+
+    @Test
+    void isolatesTheRefusedItemsAndWritesTheRest() {
+        List<Player> players = players(16);
+
+        chunkTransaction.execute(status -> {
+            write(players);
+            return null;
+        });
+        rejectLog.afterStep(stepExecution);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM player WHERE last_name = 'New'",
+                Integer.class)).isEqualTo(14);
+        assertThat(jdbcTemplate.queryForList("SELECT item FROM rejected_item ORDER BY reject_id", String.class))
+                .hasSize(2)
+                .allMatch(item -> item.contains("P03") || item.contains("P11"));
+        assertThat(jdbcTemplate.queryForList("SELECT reason FROM rejected_item", String.class))
+                .allMatch(reason -> reason.toLowerCase().contains("unique"));
+        assertThat(stepExecution.getWriteSkipCount()).isEqualTo(2);
+        // the whole chunk, then both halves of every failing part down to the two refused items
+        assertThat(writes.get()).isEqualTo(15);
+    }
+
+    @Test
+    void isolatesOneRefusedItemOfALargeChunkInLogarithmicWrites() {
+        jdbcTemplate.update("INSERT INTO player (player_id, last_name) VALUES ('P600', 'Old')");
+        List<Player> players = new ArrayList<>();
+        for (int i = 100; i < 1100; i++) {
+            players.add(player(i));
+        }
+
+        chunkTransaction.execute(status -> {
+            write(players);
+            return null;
+        });
+        rejectLog.afterStep(stepExecution);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM player WHERE last_name = 'New'",
+                Integer.class)).isEqualTo(999);
+        assertThat(jdbcTemplate.queryForList("SELECT item FROM rejected_item", String.class))
+                .hasSize(1)
+                .allMatch(item -> item.contains("P600"));
+        assertThat(stepExecution.getWriteSkipCount()).isEqualTo(1);
+        // the chunk and both halves of every failing part, 1000 items split ten times
+        assertThat(writes.get()).isEqualTo(19);
+    }
+
+    @Test
+    void failsTheChunkOnceTheSkipLimitIsExceeded() {
+        jdbcTemplate.update("INSERT INTO player (player_id, last_name) VALUES ('P05', 'Old'), ('P07', 'Old')");
+        List<Player> players = players(16);
+
+        assertThatThrownBy(() -> chunkTransaction.execute(status -> {
+            write(players);
+            return null;
+        })).isInstanceOf(SkipLimitExceededException.class);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM player WHERE last_name = 'New'",
+                Integer.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM rejected_item", Integer.class)).isZero();
+    }
+
+    @Test
+    void recordsUnparseableLinesWithTheNextChunk() throws Exception {
+        RejectingItemReader<Player> reader = new RejectingItemReader<>(
+                new PlayerLineReader("P01,New", "P02", "P04,New"), rejectLog.current());
+
+        List<Player> chunk = new ArrayList<>();
+        for (Player player = reader.read(); player != null; player = reader.read()) {
+            chunk.add(player);
+        }
+        chunkTransaction.execute(status -> {
+            write(chunk);
+            return null;
+        });
+        rejectLog.afterStep(stepExecution);
+
+        assertThat(chunk).extracting(Player::getId).containsExactly("P01", "P04");
+        assertThat(jdbcTemplate.queryForList("SELECT line_no FROM rejected_item", Long.class)).containsExactly(2L);
+        assertThat(jdbcTemplate.queryForList("SELECT item FROM rejected_item", String.class)).containsExactly("P02");
+        assertThat(stepExecution.getReadSkipCount()).isEqualTo(1);
+    }
+
+    private void write(List<Player> players) {
+        try {
+            writer.write(players);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<Player> players(int count) {
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            players.add(player(i));
+        }
+        return players;
+    }
+
+    private static Player player(int number) {
+        Player player = new Player();
+        player.setId(String.format("P%02d", number));
+        player.setLastName("New");
+        return player;
+    }
+
+    private static class PlayerLineReader extends ItemStreamSupport implements ItemStreamReader<Player> {
+        private final Iterator<String> lines;
+        private int lineNumber;
+
+        private PlayerLineReader(String... lines) {
+            this.lines = Arrays.asList(lines).iterator();
+        }
+
+        @Override
+        public Player read() {
+            if (!lines.hasNext()) {
+                return null;
+            }
+            String line = lines.next();
+            lineNumber++;
+            String[] fields = line.split(",");
+            if (fields.length != 2) {
+                throw new FlatFileParseException("Missing field 2", line, lineNumber);
+            }
+            Player player = new Player();
+            player.setId(fields[0]);
+            player.setLastName(fields[1]);
+            return player;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package lt.bauzys.sbatch.footbal;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.MapJobRepositoryFactoryBean;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BufferingJobRepositoryTests {
+
+    @Test
+    void writesEveryTenthChunkAndTheFinalState() throws Exception {
+        MapJobRepositoryFactoryBean factory = new MapJobRepositoryFactoryBean(new ResourcelessTransactionManager());
+        factory.afterPropertiesSet();
+        JobRepository delegate = factory.getObject();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BufferingJobRepository repository = new BufferingJobRepository(delegate, 10, Long.MAX_VALUE, registry);
+
+        JobExecution jobExecution = repository.createJobExecution("job", new JobParameters());
+        StepExecution stepExecution = jobExecution.createStepExecution("step");
+        repository.add(stepExecution);
+        stepExecution.setStatus(BatchStatus.STARTED);
+        repository.update(stepExecution);
+        for (int chunk = 1; chunk <= 15; chunk++) {
+            stepExecution.getExecutionContext().putInt("chunk", chunk);
+            repository.updateExecutionContext(stepExecution);
+            stepExecution.incrementCommitCount();
+            repository.update(stepExecution);
+        }
+
+        StepExecution saved = delegate.getLastStepExecution(jobExecution.getJobInstance(), "step");
+        assertThat(saved.getCommitCount()).isEqualTo(10);
+        assertThat(saved.getExecutionContext().getInt("chunk")).isEqualTo(10);
+
+        stepExecution.setStatus(BatchStatus.COMPLETED);
+        repository.updateExecutionContext(stepExecution);
+        repository.update(stepExecution);
+
+        saved = delegate.getLastStepExecution(jobExecution.getJobInstance(), "step");
+        assertThat(saved.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(saved.getExecutionContext().getInt("chunk")).isEqualTo(15);
+        assertThat(registry.counter("football.repository.step.updates", "result", "written").count()).isEqualTo(3.0);
+        assertThat(registry.counter("football.repository.step.updates", "result", "deferred").count()).isEqualTo(14.0);
+    }
+}
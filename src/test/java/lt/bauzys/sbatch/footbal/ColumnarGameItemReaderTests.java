@@ -0,0 +1,78 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ColumnarGameItemReaderTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsBackWhatTheCsvReaderReadsAndRestartsWhereItStopped() throws Exception {
+        List<String> expected = readAll(csvReader(), new ExecutionContext());
+        Path file = tempDir.resolve("games.fbgc");
+        FlatFileItemReader<Game> source = csvReader();
+        source.open(new ExecutionContext());
+        long rows = ColumnarGameFile.write(source, file);
+        source.close();
+
+        assertThat(rows).isEqualTo(expected.size());
+        assertThat(ColumnarGameFile.isColumnar(file)).isTrue();
+        assertThat(readAll(new ColumnarGameItemReader(new FileSystemResource(file)), new ExecutionContext()))
+                .isEqualTo(expected);
+
+        ColumnarGameItemReader reader = new ColumnarGameItemReader(new FileSystemResource(file));
+        ExecutionContext context = new ExecutionContext();
+        reader.open(context);
+        List<String> restarted = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            restarted.add(line(reader.read()));
+        }
+        reader.update(context);
+        reader.close();
+        restarted.addAll(readAll(new ColumnarGameItemReader(new FileSystemResource(file)), context));
+        assertThat(restarted).isEqualTo(expected);
+    }
+
+    private static FlatFileItemReader<Game> csvReader() {
+        return new FlatFileItemReaderBuilder<Game>()
+                .name("gameFileItemReader")
+                .resource(new ClassPathResource("input/games.csv"))
+                .delimited()
+                .names(GameFieldSetMapper.NAMES)
+                .fieldSetMapper(new GameFieldSetMapper())
+                .build();
+    }
+
+    private static List<String> readAll(ItemStreamReader<Game> reader, ExecutionContext context) throws Exception {
+        List<String> lines = new ArrayList<>();
+        reader.open(context);
+        for (Game game = reader.read(); game != null; game = reader.read()) {
+            lines.add(line(game));
+        }
+        reader.close();
+        return lines;
+    }
+
+    private static String line(Game g) {
+        return String.join(",", g.getId(), String.valueOf(g.getYear()), g.getTeam(), String.valueOf(g.getWeek()),
+                g.getOpponent(), String.valueOf(g.getCompletes()), String.valueOf(g.getAttempts()),
+                String.valueOf(g.getPassingYards()), String.valueOf(g.getPassingTd()),
+                String.valueOf(g.getInterceptions()), String.valueOf(g.getRushes()),
+                String.valueOf(g.getRushYards()), String.valueOf(g.getReceptions()),
+                String.valueOf(g.getReceptionYards()), String.valueOf(g.getTotalTd()));
+    }
+}
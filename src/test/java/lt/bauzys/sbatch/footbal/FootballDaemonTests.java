@@ -0,0 +1,110 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.job.SimpleJob;
+import org.springframework.batch.core.launch.JobLauncher;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FootballDaemonTests {
+
+    @TempDir
+    Path inbox;
+
+    private final List<String> launched = Collections.synchronizedList(new ArrayList<>());
+    private FootballDaemon daemon;
+    private Thread watcher;
+
+    @AfterEach
+    void stop() throws Exception {
+        if (daemon != null) {
+            daemon.destroy();
+        }
+        if (watcher != null) {
+            watcher.join();
+        }
+    }
+
+    @Test
+    void runsWaitingSetsInNameOrderThenArrivalsAndMarksThem() throws Exception {
+        fileSet("week-02");
+        fileSet("week-01");
+        start();
+
+        awaitLaunches(2);
+        fileSet("week-03-bad");
+        awaitLaunches(3);
+        awaitMarker("week-03-bad" + FootballDaemon.FAILED);
+
+        assertThat(launched).containsExactly(
+                inbox.resolve("week-01").toUri() + "game*",
+                inbox.resolve("week-02").toUri() + "game*",
+                inbox.resolve("week-03-bad").toUri() + "game*");
+        assertThat(inbox.resolve("week-01" + FootballDaemon.DONE)).exists();
+        assertThat(inbox.resolve("week-02" + FootballDaemon.DONE)).exists();
+        assertThat(inbox.resolve("week-01" + FootballDaemon.READY)).doesNotExist();
+    }
+
+    @Test
+    void identifiesTheJobInstanceByTheFileSet() throws Exception {
+        Files.createDirectories(inbox.resolve("week-01"));
+        daemon = new FootballDaemon(launcher(), new SimpleJob("footballJob"), inbox, "player*", "game*");
+
+        assertThat(daemon.jobParameters("week-01").getString("playerFile"))
+                .isEqualTo(inbox.resolve("week-01").toUri() + "player*");
+        assertThat(daemon.jobParameters("week-01")).isEqualTo(daemon.jobParameters("week-01"));
+    }
+
+    private JobLauncher launcher() {
+        return (job, parameters) -> {
+            String gameFile = parameters.getString("gameFile");
+            launched.add(gameFile);
+            JobExecution execution = new JobExecution(1L, parameters);
+            execution.setStatus(gameFile.contains("bad") ? BatchStatus.FAILED : BatchStatus.COMPLETED);
+            return execution;
+        };
+    }
+
+    private void start() {
+        daemon = new FootballDaemon(launcher(), new SimpleJob("footballJob"), inbox, "player*", "game*");
+        watcher = new Thread(() -> {
+            try {
+                daemon.run(null);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        watcher.start();
+    }
+
+    private void fileSet(String name) throws Exception {
+        Files.createDirectories(inbox.resolve(name));
+        Files.createFile(inbox.resolve(name + FootballDaemon.READY));
+    }
+
+    // WatchService may poll, on some platforms every few seconds
+    private void awaitLaunches(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (launched.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(launched).hasSize(count);
+    }
+
+    private void awaitMarker(String name) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (!Files.exists(inbox.resolve(name)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
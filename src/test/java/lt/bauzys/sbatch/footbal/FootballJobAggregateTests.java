@@ -0,0 +1,80 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@code footballJob} with {@code summary.aggregate.enabled}, partitioned so several workers add to the
+ * same partial totals, and checks the summaries against {@code summarizationStep} over the same games, also
+ * after the same files were loaded a second time.
+ */
+@SpringBootTest(properties = {"spring.profiles.active=perf", "spring.batch.job.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:aggregate;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "summary.aggregate.enabled=true", "partition.grid.size=4"})
+class FootballJobAggregateTests {
+
+    private static final String SUMMARIES = "SELECT * FROM player_summary ORDER BY id, year_no";
+
+    @Autowired
+    private JobLauncher jobLauncher;
+    @Autowired
+    private JobBuilderFactory jobBuilderFactory;
+    @Autowired
+    @Qualifier("footballJob")
+    private Job footballJob;
+    @Autowired
+    @Qualifier("summarizationStep")
+    private Step summarizationStep;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void writesTheSummariesOfTheSummarizationStepWithoutKeepingThemInTheExecutionContext() throws Exception {
+        JobExecution execution = launch();
+
+        assertThat(execution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM player_summary_partial WHERE job_instance_id = ?",
+                Integer.class, execution.getJobInstance().getInstanceId())).isZero();
+        for (StepExecution stepExecution : execution.getStepExecutions()) {
+            assertThat(stepExecution.getExecutionContext().entrySet())
+                    .noneMatch(entry -> entry.getKey().startsWith("playerSummaryAggregatingWriter"));
+        }
+        List<Map<String, Object>> aggregated = jdbcTemplate.queryForList(SUMMARIES);
+        assertThat(launch().getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(jdbcTemplate.queryForList(SUMMARIES)).isEqualTo(aggregated);
+
+        jdbcTemplate.update("DELETE FROM player_summary");
+        Job summarization = jobBuilderFactory.get("summarization").start(summarizationStep).build();
+        assertThat(jobLauncher.run(summarization, new JobParametersBuilder()
+                .addLong("run", System.nanoTime())
+                .toJobParameters()).getStatus()).isEqualTo(BatchStatus.COMPLETED);
+
+        assertThat(aggregated).isNotEmpty().isEqualTo(jdbcTemplate.queryForList(SUMMARIES));
+    }
+
+    private JobExecution launch() throws Exception {
+        return jobLauncher.run(footballJob, new JobParametersBuilder()
+                .addString("playerFile", "/input/player.csv")
+                .addString("gameFile", "/input/games.csv")
+                .addLong("run", System.nanoTime())
+                .toJobParameters());
+    }
+}
@@ -0,0 +1,57 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@code footballJob} with {@code summary.incremental.enabled} next to the touched keys of another job
+ * instance, which neither its summarization nor its cleanup may use.
+ */
+@SpringBootTest(properties = {"spring.profiles.active=perf", "spring.batch.job.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:incremental;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "summary.incremental.enabled=true"})
+class FootballJobIncrementalTests {
+
+    private static final long OTHER_JOB_INSTANCE = -1L;
+
+    @Autowired
+    private JobLauncher jobLauncher;
+    @Autowired
+    @Qualifier("footballJob")
+    private Job footballJob;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void summarizesAndClearsOnlyTheKeysOfItsJobInstance() throws Exception {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO player_summary_touched (job_instance_id, player_id, year_no)"
+                + " VALUES (?, 'AbduKa00', 1900)", OTHER_JOB_INSTANCE);
+        jdbcTemplate.update("INSERT INTO game (player_id, year, week, completes) VALUES ('AbduKa00', 1900, 1, 5)");
+
+        JobExecution execution = jobLauncher.run(footballJob, new JobParametersBuilder()
+                .addString("playerFile", "/input/player.csv")
+                .addString("gameFile", "/input/games.csv")
+                .addLong("run", System.nanoTime())
+                .toJobParameters());
+
+        assertThat(execution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM player_summary", Integer.class)).isPositive();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM player_summary WHERE year_no = 1900",
+                Integer.class)).isZero();
+        assertThat(jdbcTemplate.queryForList("SELECT job_instance_id FROM player_summary_touched", Long.class))
+                .containsExactly(OTHER_JOB_INSTANCE);
+    }
+}
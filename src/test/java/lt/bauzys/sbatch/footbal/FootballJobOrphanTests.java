@@ -0,0 +1,79 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@code footballJob} with {@code game.orphans=skip} and a partitioned game load, so the player ids are
+ * checked on the partition threads, and counts the filtered games against the bundled files.
+ */
+@SpringBootTest(properties = {"spring.profiles.active=perf", "spring.batch.job.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:orphans;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "game.orphans=skip", "load.parallel=false", "partition.grid.size=4"})
+class FootballJobOrphanTests {
+
+    @Autowired
+    private JobLauncher jobLauncher;
+    @Autowired
+    @Qualifier("footballJob")
+    private Job footballJob;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void skipsGamesOfUnknownPlayersOnEveryPartition() throws Exception {
+        JobExecution execution = jobLauncher.run(footballJob, new JobParametersBuilder()
+                .addString("playerFile", "/input/player.csv")
+                .addString("gameFile", "/input/games.csv")
+                .addLong("run", System.nanoTime())
+                .toJobParameters());
+
+        assertThat(execution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM game", Integer.class)).isPositive();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM game WHERE NOT EXISTS"
+                + " (SELECT 1 FROM player WHERE player.player_id = game.player_id)", Integer.class)).isZero();
+        StepExecution gameLoad = execution.getStepExecutions().stream()
+                .filter(step -> step.getStepName().equals("gameLoad"))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+        assertThat(gameLoad.getFilterCount()).isPositive().isEqualTo(orphanGameLines());
+    }
+
+    private static long orphanGameLines() throws IOException {
+        Set<String> players = new HashSet<>(ids("input/player.csv"));
+        return ids("input/games.csv").stream().filter(id -> !players.contains(id)).count();
+    }
+
+    private static List<String> ids(String file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ClassPathResource(file).getInputStream(), StandardCharsets.UTF_8))) {
+            return reader.lines()
+                    .filter(line -> !line.isEmpty())
+                    .map(line -> line.substring(0, line.indexOf(',')))
+                    .collect(Collectors.toList());
+        }
+    }
+}
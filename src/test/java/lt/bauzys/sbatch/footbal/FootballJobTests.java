@@ -0,0 +1,70 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@code footballJob} over the bundled files with the properties of {@code application.properties}, against
+ * the in-memory H2 database of the {@code perf} profile.
+ */
+@SpringBootTest(properties = {"spring.profiles.active=perf", "spring.batch.job.enabled=false"})
+class FootballJobTests {
+
+    private static final String SUMMARIES = "SELECT * FROM player_summary ORDER BY id, year_no";
+
+    @Autowired
+    private JobLauncher jobLauncher;
+    @Autowired
+    @Qualifier("footballJob")
+    private Job footballJob;
+    @Autowired
+    private DataSource dataSource;
+
+    private long run;
+
+    @Test
+    void completesWithTheDefaultProperties() throws Exception {
+        JobExecution execution = launch();
+
+        assertThat(execution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM player", Integer.class)).isPositive();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM player_summary", Integer.class)).isPositive();
+    }
+
+    @Test
+    void loadsTheSameFilesTwice() throws Exception {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertThat(launch().getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        Integer players = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM player", Integer.class);
+        Integer games = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM game", Integer.class);
+        List<Map<String, Object>> summaries = jdbcTemplate.queryForList(SUMMARIES);
+
+        assertThat(launch().getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM player", Integer.class)).isEqualTo(players);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM game", Integer.class)).isEqualTo(games);
+        assertThat(jdbcTemplate.queryForList(SUMMARIES)).isNotEmpty().isEqualTo(summaries);
+    }
+
+    private JobExecution launch() throws Exception {
+        return jobLauncher.run(footballJob, new JobParametersBuilder()
+                .addString("playerFile", "/input/player.csv")
+                .addString("gameFile", "/input/games.csv")
+                .addLong("run", System.nanoTime() + ++run)
+                .toJobParameters());
+    }
+}
@@ -0,0 +1,100 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.database.JdbcPagingItemReader;
+import org.springframework.batch.item.database.Order;
+import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeysetPagingQueryProviderTests {
+
+    private EmbeddedDatabase database;
+
+    @BeforeEach
+    void createGames() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName("keysetPaging;MODE=MySQL")
+                .addScript("schema-mysql.sql")
+                .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        for (int player = 0; player < 5; player++) {
+            for (int year = 1995; year < 1998; year++) {
+                for (int week = 1; week <= 2; week++) {
+                    jdbcTemplate.update("INSERT INTO game (player_id, year, week, completes) VALUES (?, ?, ?, 1)",
+                            "P" + player, year, week);
+                }
+            }
+        }
+    }
+
+    @AfterEach
+    void shutdown() {
+        database.shutdown();
+    }
+
+    @Test
+    void pagesThroughGroupsAndRestartsAfterTheLastCommittedKey() throws Exception {
+        List<String> expected = readAll(reader(), new ExecutionContext());
+        assertThat(expected).hasSize(15).first().isEqualTo("P0/1995/2");
+
+        JdbcPagingItemReader<String> reader = reader();
+        ExecutionContext context = new ExecutionContext();
+        reader.open(context);
+        List<String> restarted = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            restarted.add(reader.read());
+        }
+        reader.update(context);
+        reader.close();
+        restarted.addAll(readAll(reader(), context));
+
+        assertThat(restarted).isEqualTo(expected);
+    }
+
+    private JdbcPagingItemReader<String> reader() throws Exception {
+        KeysetPagingQueryProvider queryProvider = new KeysetPagingQueryProvider();
+        queryProvider.setSelectClause("GAME.player_id, GAME.year, SUM(COMPLETES)");
+        queryProvider.setFromClause("GAME");
+        queryProvider.setGroupClause("GAME.player_id, GAME.year");
+        Map<String, Order> sortKeys = new LinkedHashMap<>();
+        sortKeys.put("player_id", Order.ASCENDING);
+        sortKeys.put("year", Order.ASCENDING);
+        queryProvider.setSortKeys(sortKeys);
+        JdbcPagingItemReader<String> reader = new JdbcPagingItemReaderBuilder<String>()
+                .dataSource(database)
+                .name("keysetReader")
+                .rowMapper((rs, rowNum) -> rs.getString(1) + "/" + rs.getInt(2) + "/" + rs.getInt(3))
+                .queryProvider(queryProvider)
+                .parameterValues(Collections.emptyMap())
+                .pageSize(3)
+                .build();
+        reader.afterPropertiesSet();
+        return reader;
+    }
+
+    private static List<String> readAll(JdbcPagingItemReader<String> reader, ExecutionContext context)
+            throws Exception {
+        List<String> items = new ArrayList<>();
+        reader.open(context);
+        for (String item = reader.read(); item != null; item = reader.read()) {
+            items.add(item);
+        }
+        reader.close();
+        return items;
+    }
+}
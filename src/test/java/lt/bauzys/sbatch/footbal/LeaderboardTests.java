@@ -0,0 +1,55 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LeaderboardTests {
+
+    @Test
+    void keepsTheSameLeadersAsAFullSort() {
+        Random random = new Random(7);
+        List<PlayerSummary> summaries = new ArrayList<>();
+        Leaderboard leaderboard = new Leaderboard(5);
+        for (int player = 0; player < 500; player++) {
+            for (int year = 1995; year < 1998; year++) {
+                PlayerSummary summary = new PlayerSummary();
+                summary.setId(String.format("P%04d", player));
+                summary.setYear(year);
+                // few distinct values, so ties at the cut are common
+                summary.setRushYards(random.nextInt(50));
+                summary.setTotalTd(random.nextInt(3));
+                summaries.add(summary);
+                leaderboard.add(summary);
+            }
+        }
+
+        List<Leaderboard.Entry> entries = leaderboard.entries();
+
+        for (int year = 1995; year < 1998; year++) {
+            int season = year;
+            List<String> expected = summaries.stream()
+                    .filter(summary -> summary.getYear() == season)
+                    .sorted(Comparator.comparingInt(PlayerSummary::getRushYards).reversed()
+                            .thenComparing(PlayerSummary::getId))
+                    .limit(5)
+                    .map(summary -> summary.getId() + "=" + summary.getRushYards())
+                    .collect(Collectors.toList());
+            List<String> actual = entries.stream()
+                    .filter(entry -> entry.getYear() == season && entry.getStat() == Leaderboard.Stat.RUSH_YARDS)
+                    .map(entry -> entry.getPlayerId() + "=" + entry.getValue())
+                    .collect(Collectors.toList());
+            assertThat(actual).isEqualTo(expected);
+        }
+        assertThat(entries).filteredOn(entry -> entry.getStat() == Leaderboard.Stat.PASSING_YARDS).isEmpty();
+        assertThat(entries).filteredOn(entry -> entry.getYear() == 1996 && entry.getStat() == Leaderboard.Stat.TOTAL_TD)
+                .extracting(Leaderboard.Entry::getRank)
+                .containsExactly(1, 2, 3, 4, 5);
+    }
+}
@@ -0,0 +1,65 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LineAlignedFilePartitionerTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void rangesAreLineAlignedAndCoverTheWholeFile() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            content.append("player").append(i).append(",1996,mia,").append(i % 17).append('\n');
+        }
+        Path file = tempDir.resolve("games.csv");
+        Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+        FileSystemResource resource = new FileSystemResource(file);
+
+        Map<String, ExecutionContext> partitions = new LineAlignedFilePartitioner(resource).partition(7);
+
+        assertThat(partitions).hasSize(7);
+        List<ExecutionContext> ordered = new ArrayList<>(partitions.values());
+        ordered.sort((a, b) -> Long.compare(a.getLong("startOffset"), b.getLong("startOffset")));
+        StringBuilder joined = new StringBuilder();
+        long expectedStart = 0;
+        for (ExecutionContext context : ordered) {
+            long start = context.getLong("startOffset");
+            long end = context.getLong("endOffset");
+            assertThat(start).isEqualTo(expectedStart);
+            String range = StreamUtils.copyToString(
+                    new ByteRangeResource(resource, start, end).getInputStream(), StandardCharsets.UTF_8);
+            assertThat(range).endsWith("\n").startsWith("player");
+            joined.append(range);
+            expectedStart = end;
+        }
+        assertThat(expectedStart).isEqualTo(Files.size(file));
+        assertThat(joined.toString()).isEqualTo(content.toString());
+    }
+
+    @Test
+    void smallFileYieldsFewerPartitions() throws IOException {
+        Path file = tempDir.resolve("games.csv");
+        Files.write(file, "a,1\nb,2\n".getBytes(StandardCharsets.UTF_8));
+
+        Map<String, ExecutionContext> partitions =
+                new LineAlignedFilePartitioner(new FileSystemResource(file)).partition(10);
+
+        assertThat(partitions).hasSize(2);
+    }
+}
@@ -0,0 +1,60 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.core.io.FileSystemResource;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedCsvItemReaderTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void trimsFieldsLikeTheDelimitedTokenizer() throws Exception {
+        MappedPlayerItemReader reader = reader(" AbduKa00 ,Abdul-Jabbar , Karim,\trb , 1974,1996\r\n");
+        reader.setSymbolTable(new SymbolTable());
+
+        Player player = reader.read();
+
+        assertThat(player.getId()).isEqualTo("AbduKa00");
+        assertThat(player.getLastName()).isEqualTo("Abdul-Jabbar");
+        assertThat(player.getFirstName()).isEqualTo("Karim");
+        assertThat(player.getPosition()).isEqualTo("rb");
+        assertThat(player.getBirthYear()).isEqualTo(1974);
+        assertThat(player.getDebutYear()).isEqualTo(1996);
+        reader.close();
+    }
+
+    @Test
+    void refusesLinesWithExtraFields() throws Exception {
+        MappedPlayerItemReader reader = reader("AbduKa00,Abdul-Jabbar,Karim,rb,1974,1996,extra\n"
+                + "AbduRa00,Abdullah,Rabih,rb,1975,1999,\n"
+                + "AberWa00,Abercrombie,Walter,rb,1959,1982\n");
+
+        assertThatThrownBy(reader::read).isInstanceOf(FlatFileParseException.class)
+                .hasMessageContaining("expected 6 actual 7")
+                .satisfies(e -> assertThat(((FlatFileParseException) e).getLineNumber()).isEqualTo(1));
+        assertThatThrownBy(reader::read).isInstanceOf(FlatFileParseException.class)
+                .satisfies(e -> assertThat(((FlatFileParseException) e).getLineNumber()).isEqualTo(2));
+        assertThat(reader.read().getId()).isEqualTo("AberWa00");
+        assertThat(reader.read()).isNull();
+        reader.close();
+    }
+
+    private MappedPlayerItemReader reader(String content) throws Exception {
+        Path file = tempDir.resolve("player.csv");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        MappedPlayerItemReader reader = new MappedPlayerItemReader(new FileSystemResource(file));
+        reader.open(new ExecutionContext());
+        return reader;
+    }
+}
@@ -0,0 +1,92 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MultiFileItemReaderTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void restartSkipsFinishedFilesAndContinuesTheCurrentOne() throws Exception {
+        List<Resource> files = new ArrayList<>();
+        for (int file = 0; file < 3; file++) {
+            files.add(gameFile(file));
+        }
+
+        ExecutionContext context = new ExecutionContext();
+        List<String> lines = read(files, context, 5);
+        // the first file must not be read again, so deleting it does not matter
+        Files.delete(tempDir.resolve("games-0.csv"));
+        lines.addAll(read(files, context, Integer.MAX_VALUE));
+
+        assertThat(lines).containsExactly("f0-a", "f0-b", "f0-c", "f1-a", "f1-b", "f1-c", "f2-a", "f2-b", "f2-c");
+    }
+
+    @Test
+    void restartReadsAFileAddedBeforeTheCurrentOneAndResumesTheCurrentOne() throws Exception {
+        List<Resource> files = new ArrayList<>();
+        for (int file = 1; file <= 3; file++) {
+            files.add(gameFile(file));
+        }
+
+        ExecutionContext context = new ExecutionContext();
+        List<String> lines = read(files, context, 5);
+        // re-resolving the glob on restart finds a new file sorting first
+        files.add(0, gameFile(0));
+        lines.addAll(read(files, context, Integer.MAX_VALUE));
+
+        assertThat(lines).containsExactly("f1-a", "f1-b", "f1-c", "f2-a", "f2-b",
+                "f2-c", "f0-a", "f0-b", "f0-c", "f3-a", "f3-b", "f3-c");
+    }
+
+    @Test
+    void restartOfASingleFileSetReadsTheFileThatArrivedWithoutRereadingTheFirst() throws Exception {
+        List<Resource> files = new ArrayList<>();
+        files.add(gameFile(1));
+
+        ExecutionContext context = new ExecutionContext();
+        List<String> lines = read(files, context, 2);
+        files.add(gameFile(2));
+        lines.addAll(read(files, context, Integer.MAX_VALUE));
+
+        assertThat(lines).containsExactly("f1-a", "f1-b", "f1-c", "f2-a", "f2-b", "f2-c");
+    }
+
+    private Resource gameFile(int file) throws IOException {
+        Path path = tempDir.resolve("games-" + file + ".csv");
+        Files.write(path, ("f" + file + "-a\nf" + file + "-b\nf" + file + "-c\n").getBytes(StandardCharsets.UTF_8));
+        return new FileSystemResource(path);
+    }
+
+    private static List<String> read(List<Resource> files, ExecutionContext context, int limit) throws Exception {
+        MultiFileItemReader<String> reader = new MultiFileItemReader<>("multiFileReader", files,
+                file -> new FlatFileItemReaderBuilder<String>()
+                        .name("lineReader")
+                        .resource(file)
+                        .lineMapper((line, lineNumber) -> line)
+                        .build());
+        List<String> lines = new ArrayList<>();
+        reader.open(context);
+        for (String line; lines.size() < limit && (line = reader.read()) != null; ) {
+            lines.add(line);
+        }
+        reader.update(context);
+        reader.close();
+        return lines;
+    }
+}
@@ -0,0 +1,92 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MultiFilePartitionerTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void directoryResolvesToItsFilesInNameOrder() throws IOException {
+        write("games-2.csv", 10);
+        write("games-1.csv", 10);
+        write(".games-3.csv", 10);
+        Files.createDirectory(tempDir.resolve("archive"));
+
+        List<Resource> files = MultiFilePartitioner.resolve(new PathMatchingResourcePatternResolver(),
+                tempDir.toUri().toString());
+
+        assertThat(files).extracting(Resource::getFilename).containsExactly("games-1.csv", "games-2.csv");
+    }
+
+    @Test
+    void everyFileEndsUpInExactlyOnePartitionOfSimilarSize() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            write("games-" + i + ".csv", 100 * (i + 1));
+        }
+        List<Resource> files = MultiFilePartitioner.resolve(new PathMatchingResourcePatternResolver(),
+                tempDir.toUri() + "games-*.csv");
+
+        Map<String, ExecutionContext> partitions = new MultiFilePartitioner(files).partition(3);
+
+        assertThat(partitions).hasSize(3);
+        List<String> assigned = new ArrayList<>();
+        List<Long> sizes = new ArrayList<>();
+        for (ExecutionContext context : partitions.values()) {
+            long size = 0;
+            for (Resource file : MultiFilePartitioner.files(context.getString("inputFiles"))) {
+                assigned.add(file.getFilename());
+                size += file.contentLength();
+            }
+            sizes.add(size);
+        }
+        assertThat(assigned).hasSize(10).doesNotHaveDuplicates();
+        long smallest = sizes.stream().mapToLong(Long::longValue).min().getAsLong();
+        long largest = sizes.stream().mapToLong(Long::longValue).max().getAsLong();
+        // largest file first keeps the spread below the largest file
+        assertThat(largest - smallest).isLessThanOrEqualTo(Files.size(tempDir.resolve("games-9.csv")));
+    }
+
+    @Test
+    void fewerFilesThanGridSizeYieldOnePartitionPerFile() throws IOException {
+        write("games-1.csv", 10);
+        write("games-2.csv", 10);
+        List<Resource> files = MultiFilePartitioner.resolve(new PathMatchingResourcePatternResolver(),
+                tempDir.toUri().toString());
+
+        assertThat(new MultiFilePartitioner(files).partition(8)).hasSize(2);
+    }
+
+    @Test
+    void directoriesAndPatternsAreFileSetsHoweverManyFilesTheyMatch() throws IOException {
+        write("games-1.csv", 10);
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+
+        assertThat(MultiFilePartitioner.isFileSet(resolver, tempDir.toUri().toString())).isTrue();
+        assertThat(MultiFilePartitioner.isFileSet(resolver, tempDir.toUri() + "games-*.csv")).isTrue();
+        assertThat(MultiFilePartitioner.isFileSet(resolver, tempDir.resolve("games-1.csv").toUri().toString()))
+                .isFalse();
+    }
+
+    private void write(String name, int lines) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            content.append("player").append(i).append(",1996,mia\n");
+        }
+        Files.write(tempDir.resolve(name), content.toString().getBytes());
+    }
+}
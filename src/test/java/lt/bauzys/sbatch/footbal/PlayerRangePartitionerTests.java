@@ -0,0 +1,77 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PlayerRangePartitionerTests {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void createGames() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName("playerRangePartitioner;MODE=MySQL")
+                .addScript("schema-mysql.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        // one long career followed by many short ones
+        for (int week = 1; week <= 50; week++) {
+            insertGame("AAA", week);
+        }
+        for (int player = 0; player < 50; player++) {
+            insertGame(String.format("B%02d", player), 1);
+        }
+    }
+
+    @AfterEach
+    void shutdown() {
+        database.shutdown();
+    }
+
+    @Test
+    void rangesCoverEveryGameOnceAndBalanceGameCounts() {
+        Map<String, ExecutionContext> partitions = new PlayerRangePartitioner(database).partition(4);
+
+        assertThat(partitions).hasSize(4);
+        long covered = 0;
+        for (ExecutionContext context : partitions.values()) {
+            String min = context.containsKey(PlayerRangePartitioner.MIN_PLAYER_ID)
+                    ? context.getString(PlayerRangePartitioner.MIN_PLAYER_ID) : "";
+            String max = context.containsKey(PlayerRangePartitioner.MAX_PLAYER_ID)
+                    ? context.getString(PlayerRangePartitioner.MAX_PLAYER_ID) : "~";
+            Long games = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM game WHERE player_id >= ? AND player_id < ?", Long.class, min, max);
+            assertThat(games).isPositive();
+            covered += games;
+        }
+        assertThat(covered).isEqualTo(100);
+        assertThat(partitions.values()).filteredOn(c -> !c.containsKey(PlayerRangePartitioner.MIN_PLAYER_ID))
+                .hasSize(1);
+    }
+
+    @Test
+    void emptyGameTableGivesOneOpenPartition() {
+        jdbcTemplate.update("DELETE FROM game");
+
+        Map<String, ExecutionContext> partitions = new PlayerRangePartitioner(database).partition(4);
+
+        assertThat(partitions).hasSize(1);
+        assertThat(partitions.get("partition0").isEmpty()).isTrue();
+    }
+
+    private void insertGame(String playerId, int week) {
+        jdbcTemplate.update("INSERT INTO game (player_id, year, week) VALUES (?, 1996, ?)", playerId, week);
+    }
+}
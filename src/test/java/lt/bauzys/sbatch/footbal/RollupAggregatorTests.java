@@ -0,0 +1,49 @@
+package lt.bauzys.sbatch.footbal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RollupAggregatorTests {
+
+    @Test
+    void closesGroupsWhenTheStreamLeavesTheirScope() {
+        RollupAggregator aggregator = new RollupAggregator(Rollup.Level.values());
+        List<Rollup> closed = new ArrayList<>();
+
+        aggregator.add(game("P1", 1995, "mia", 10), closed);
+        aggregator.add(game("P1", 1995, "nyj", 20), closed);
+        assertThat(closed).isEmpty();
+
+        aggregator.add(game("P1", 1996, "nyj", 30), closed);
+        assertThat(closed).extracting(Rollup::getLevel).containsExactly(
+                Rollup.Level.PLAYER_YEAR, Rollup.Level.PLAYER_YEAR_TEAM, Rollup.Level.PLAYER_YEAR_TEAM);
+        assertThat(closed.get(0).getStat(6)).isEqualTo(30);
+        closed.clear();
+
+        aggregator.add(game("P2", 1995, "mia", 5), closed);
+        assertThat(closed).filteredOn(rollup -> rollup.getLevel() == Rollup.Level.PLAYER_CAREER)
+                .extracting(career -> career.getFirstYear() + "-" + career.getLastYear() + " "
+                        + career.getGames() + " " + career.getStat(6))
+                .containsExactly("1995-1996 3 60");
+        assertThat(closed).noneMatch(rollup -> rollup.getLevel() == Rollup.Level.TEAM_YEAR);
+        closed.clear();
+
+        aggregator.finish(closed);
+        assertThat(closed).filteredOn(rollup -> rollup.getLevel() == Rollup.Level.TEAM_YEAR)
+                .extracting(rollup -> rollup.getTeam() + " " + rollup.getYear() + " " + rollup.getStat(6))
+                .containsExactly("mia 1995 15", "nyj 1995 20", "nyj 1996 30");
+    }
+
+    private static Game game(String player, int year, String team, int rushYards) {
+        Game game = new Game();
+        game.setId(player);
+        game.setYear(year);
+        game.setTeam(team);
+        game.setRushYards(rushYards);
+        return game;
+    }
+}